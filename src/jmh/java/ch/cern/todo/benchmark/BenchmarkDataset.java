@@ -0,0 +1,56 @@
+package ch.cern.todo.benchmark;
+
+import ch.cern.todo.TodoApplication;
+import ch.cern.todo.repository.TaskKeyIndex;
+import ch.cern.todo.repository.TaskTextIndex;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+// Starts the application against its embedded H2 database and seeds it with generated tasks
+final class BenchmarkDataset {
+    static final int AUTHORS = 1_000;
+    static final int CATEGORIES = 100;
+    static final int HOURS_OF_DEADLINES = 24 * 365;
+    static final LocalDateTime FIRST_DEADLINE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private BenchmarkDataset() {}
+
+    static ConfigurableApplicationContext start(int tasks) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TodoApplication.class)
+            .properties("server.port=0", "logging.level.root=WARN", "spring.datasource.url=jdbc:h2:mem:benchmark")
+            .run();
+        seed(context, tasks);
+        return context;
+    }
+
+    static String author(int index) {
+        return "user" + index;
+    }
+
+    private static void seed(ConfigurableApplicationContext context, int tasks) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.execute(
+            "insert into task_categories (category_id, category_name) "
+                + "select x, 'category ' || x from system_range(1, " + CATEGORIES + ")"
+        );
+        jdbc.execute(
+            "insert into tasks (task_id, task_name, task_description, deadline, category_id, author, modification_seq) "
+                + "select x, 'task ' || x, 'description of task ' || x, "
+                + "dateadd('HOUR', mod(x, " + HOURS_OF_DEADLINES + "), timestamp '2024-01-01 00:00:00'), "
+                + "1 + mod(x, " + CATEGORIES + "), 'user' || mod(x, " + AUTHORS + "), 0 "
+                + "from system_range(1, " + tasks + ")"
+        );
+        // Keep the ID generators clear of the seeded rows
+        jdbc.execute("alter sequence task_categories_seq restart with " + (CATEGORIES + 1000));
+        jdbc.execute("alter sequence tasks_seq restart with " + (tasks + 1000));
+        jdbc.execute("analyze");
+
+        // The rows are stamped like tasks that predate the modification sequence instead of being left
+        // to UntrackedTaskWrites, so the in-memory indexes must be rebuilt
+        context.getBean(TaskTextIndex.class).rebuild();
+        context.getBean(TaskKeyIndex.class).rebuild();
+    }
+}
@@ -0,0 +1,58 @@
+package ch.cern.todo.benchmark;
+
+import ch.cern.todo.model.Category;
+import ch.cern.todo.model.NewTaskDto;
+import ch.cern.todo.model.PersistedTaskDto;
+import ch.cern.todo.model.Task;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static ch.cern.todo.benchmark.BenchmarkDataset.FIRST_DEADLINE;
+
+// Mapping and serialization cost of search results, independent of the database
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskDtoBenchmark {
+    @Param({"100", "1000"})
+    public int resultSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Task> tasks;
+    private List<PersistedTaskDto> dtos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Category category = new Category("category", "description");
+        category.setId(1L);
+        tasks = new ArrayList<>(resultSize);
+        for (int i = 0; i < resultSize; i++) {
+            Task task = new Task(
+                new NewTaskDto("task " + i, "description of task " + i, FIRST_DEADLINE.plusHours(i), 1L),
+                category,
+                "user" + i
+            );
+            task.setId((long) i);
+            tasks.add(task);
+        }
+        dtos = tasks.stream().map(PersistedTaskDto::new).toList();
+    }
+
+    @Benchmark
+    public void constructPersistedTaskDtos(Blackhole blackhole) {
+        for (Task task : tasks) {
+            blackhole.consume(new PersistedTaskDto(task));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeSearchResult() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+}
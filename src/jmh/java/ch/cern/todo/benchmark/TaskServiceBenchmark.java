@@ -0,0 +1,98 @@
+package ch.cern.todo.benchmark;
+
+import ch.cern.todo.model.Category;
+import ch.cern.todo.model.NewTaskDto;
+import ch.cern.todo.model.TaskSearchCriteria;
+import ch.cern.todo.repository.CategoryRepository;
+import ch.cern.todo.service.TaskService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static ch.cern.todo.benchmark.BenchmarkDataset.*;
+
+// Service and persistence layers against a seeded H2 database, one search per filter combination
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskServiceBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int tasks;
+
+    private ConfigurableApplicationContext context;
+    private TaskService taskService;
+    private Category category;
+    private UserDetails admin;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDataset.start(tasks);
+        taskService = context.getBean(TaskService.class);
+        category = context.getBean(CategoryRepository.class).findById(1L).orElseThrow();
+        admin = User.withUsername("admin").password("unused").roles("USER", "ADMIN").build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object searchByAuthor() {
+        return taskService.search(criteria().withAuthor(randomAuthor()));
+    }
+
+    @Benchmark
+    public Object searchByAuthorAndName() {
+        return taskService.search(new TaskSearchCriteria(
+            randomAuthor(), "task 1", null, null, null, null, false, false, null
+        ));
+    }
+
+    @Benchmark
+    public Object searchByAuthorAndDeadlineRange() {
+        var from = FIRST_DEADLINE.plusHours(ThreadLocalRandom.current().nextInt(HOURS_OF_DEADLINES));
+        return taskService.search(new TaskSearchCriteria(
+            randomAuthor(), null, null, null, from, from.plusDays(30), false, false, null
+        ));
+    }
+
+    @Benchmark
+    public Object searchByAuthorAndCategory() {
+        return taskService.search(new TaskSearchCriteria(
+            randomAuthor(), null, null, null, null, null, false, false, category
+        ));
+    }
+
+    @Benchmark
+    public Object searchByName() {
+        return taskService.search(new TaskSearchCriteria(
+            null, "task 12345", null, null, null, null, false, false, null
+        ));
+    }
+
+    @Benchmark
+    public Object searchFirstPageWithoutFilter() {
+        return taskService.searchPage(criteria(), null, 100, admin);
+    }
+
+    @Benchmark
+    public Object saveTask() {
+        return taskService.saveTask(
+            new NewTaskDto("benchmark task", "benchmark description", FIRST_DEADLINE, category.getId()),
+            randomAuthor()
+        );
+    }
+
+    private static TaskSearchCriteria criteria() {
+        return new TaskSearchCriteria(null, null, null, null, null, null, false, false, null);
+    }
+
+    private static String randomAuthor() {
+        return author(ThreadLocalRandom.current().nextInt(AUTHORS));
+    }
+}
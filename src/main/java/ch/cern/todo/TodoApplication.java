@@ -1,26 +1,58 @@
 package ch.cern.todo;
 
+import ch.cern.todo.model.VersionedTask;
+import ch.cern.todo.security.CachingPasswordEncoder;
+import ch.cern.todo.security.CopyingUserCache;
+import ch.cern.todo.security.TodoUserDetailsService;
+import ch.cern.todo.service.ServiceMetrics;
+import ch.cern.todo.service.TaskCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
-import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
 import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.jdbc.JdbcDaoImpl;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.JdbcUserDetailsManager;
 import org.springframework.security.provisioning.UserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
 import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
 
-import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
 import static org.springframework.security.config.Customizer.withDefaults;
 
 @SpringBootApplication
+@EnableCaching
+@EnableScheduling
 public class TodoApplication {
+	public static final String USER_CACHE = "users";
+	public static final String CREDENTIAL_CACHE = "credentials";
 
 	public static void main(String[] args) {
 		SpringApplication.run(TodoApplication.class, args);
@@ -37,16 +69,84 @@ public class TodoApplication {
 	}
 
 	@Bean
-	DataSource dataSource() {
-		return new EmbeddedDatabaseBuilder()
-			.setType(H2)
-			.setName("todo-db")
-			.addScripts(JdbcDaoImpl.DEFAULT_USER_SCHEMA_DDL_LOCATION)
-			.build();
+	Clock clock() {
+		return Clock.systemDefaultZone();
+	}
+
+	// Outermost advice, so that the timers of the services include their transaction and cache handling
+	@Bean
+	@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+	static Advisor serviceTimers(ObjectProvider<ServiceMetrics> metrics) {
+		DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+			AnnotationMatchingPointcut.forClassAnnotation(Service.class),
+			(MethodInterceptor) invocation -> metrics.getObject().timeCall(invocation)
+		);
+		advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		return advisor;
+	}
+
+	@Bean
+	CacheManagerCustomizer<CaffeineCacheManager> securityCaches(
+		@Value("${todo.security.user-cache.ttl}") Duration userCacheTtl,
+		@Value("${todo.security.credential-cache.ttl}") Duration credentialCacheTtl
+	) {
+		return cacheManager -> {
+			cacheManager.registerCustomCache(USER_CACHE, Caffeine.newBuilder()
+				.maximumSize(10_000)
+				.expireAfterWrite(userCacheTtl)
+				.recordStats()
+				.build());
+			cacheManager.registerCustomCache(CREDENTIAL_CACHE, Caffeine.newBuilder()
+				.maximumSize(10_000)
+				.expireAfterWrite(credentialCacheTtl)
+				.recordStats()
+				.build());
+		};
+	}
+
+	// Bounded by the estimated size of the cached tasks, hits and misses are published like the other caches
+	@Bean
+	CacheManagerCustomizer<CaffeineCacheManager> taskCache(
+		@Value("${todo.task-cache.max-memory}") DataSize maxMemory,
+		@Value("${todo.task-cache.ttl}") Duration ttl
+	) {
+		return cacheManager -> cacheManager.registerCustomCache(TaskCache.TASK_CACHE, Caffeine.newBuilder()
+			.maximumWeight(maxMemory.toBytes())
+			.<Object, Object>weigher((id, task) -> ((VersionedTask) task).estimatedSize())
+			.expireAfterWrite(ttl)
+			.recordStats()
+			.build());
+	}
+
+	@Bean
+	UserCache userCache(CacheManager cacheManager) {
+		return new CopyingUserCache(cacheManager.getCache(USER_CACHE));
+	}
+
+	// HTTP Basic authenticates every request, so users are served from the cache
+	// instead of being looked up in the users/authorities tables each time
+	@Bean
+	DaoAuthenticationProvider authenticationProvider(
+		UserDetailsManager users,
+		UserCache userCache,
+		CacheManager cacheManager,
+		@Value("${todo.security.credential-cache.enabled}") boolean cacheCredentialChecks
+	) {
+		PasswordEncoder passwordEncoder = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+		if (cacheCredentialChecks) {
+			passwordEncoder = new CachingPasswordEncoder(passwordEncoder, cacheManager.getCache(CREDENTIAL_CACHE));
+		}
+
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+		provider.setUserDetailsService(new TodoUserDetailsService(users));
+		provider.setPasswordEncoder(passwordEncoder);
+		provider.setUserCache(userCache);
+		return provider;
 	}
 
 	@Bean
-	UserDetailsManager users(DataSource dataSource) {
+	@DependsOnDatabaseInitialization
+	UserDetailsManager users(DataSource dataSource, UserCache userCache) {
 		// Challenge requirements do not include user management so we hardcode a few users
 		UserDetails user = User.builder()
 			.username("user")
@@ -64,9 +164,14 @@ public class TodoApplication {
 			.roles("USER", "ADMIN")
 			.build();
 		JdbcUserDetailsManager users = new JdbcUserDetailsManager(dataSource);
-		users.createUser(user);
-		users.createUser(userTwo);
-		users.createUser(admin);
+		// Evicts users from the cache when they are updated or deleted
+		users.setUserCache(userCache);
+		// The database outlives the application, so the users may already be there
+		for (UserDetails userDetails : List.of(user, userTwo, admin)) {
+			if (!users.userExists(userDetails.getUsername())) {
+				users.createUser(userDetails);
+			}
+		}
 		return users;
 	}
 }
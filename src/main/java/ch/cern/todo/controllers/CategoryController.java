@@ -4,7 +4,10 @@ import ch.cern.todo.model.Category;
 import ch.cern.todo.model.NewCategoryDto;
 import ch.cern.todo.service.CategoryService;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.web.bind.annotation.*;
@@ -12,7 +15,7 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.util.NoSuchElementException;
 
-import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.*;
 
 @RestController
 @EnableMethodSecurity
@@ -27,33 +30,43 @@ public class CategoryController {
     // A more sophisticated system could have been built where each
     // category is bound to a user, giving the same access control as tasks.
     // Instead, only admins can create/update/delete categories.
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PreAuthorize("@permissions.isAdmin(principal)")
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public Category addCategory(@Valid @RequestBody NewCategoryDto newCategoryDto) {
-        return categoryService.saveCategory(new Category(newCategoryDto));
+    public ResponseEntity<Category> addCategory(@Valid @RequestBody NewCategoryDto newCategoryDto) {
+        Category saved = categoryService.saveCategory(new Category(newCategoryDto));
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.of(saved.getVersion())).body(saved);
     }
 
+    // Categories come from the cache, and a matching If-None-Match is answered with a 304
+    // by Spring before the body is serialized
     @GetMapping("{id}")
-    public Category getCategory(@PathVariable Long id) {
+    public ResponseEntity<Category> getCategory(@PathVariable Long id) {
         try {
-            return categoryService.getCategory(id);
+            Category category = categoryService.getCategory(id);
+            return ResponseEntity.ok().eTag(ETags.of(category.getVersion())).body(category);
         } catch (NoSuchElementException e) {
             throw new ResponseStatusException(NOT_FOUND, "No category with ID " + id, e);
         }
     }
 
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PreAuthorize("@permissions.isAdmin(principal)")
     @PutMapping("{id}")
-    public Category updateCategory(@PathVariable Long id, @Valid @RequestBody NewCategoryDto category) {
+    public ResponseEntity<Category> updateCategory(
+        @PathVariable Long id,
+        @Valid @RequestBody NewCategoryDto category,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
         try {
-            return categoryService.updateCategory(id, category);
+            Category updated = categoryService.updateCategory(id, category, ETags.requiredVersion(ifMatch));
+            return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(updated);
         } catch (NoSuchElementException e) {
             throw new ResponseStatusException(NOT_FOUND, "No category with ID " + id, e);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(ifMatch == null ? CONFLICT : PRECONDITION_FAILED, "Category " + id + " has been modified", e);
         }
     }
 
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PreAuthorize("@permissions.isAdmin(principal)")
     @DeleteMapping("{id}")
     public void deleteCategory(@PathVariable Long id) {
         categoryService.deleteCategory(id);
@@ -0,0 +1,34 @@
+package ch.cern.todo.controllers;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
+
+// Strong ETags derived from the entity versions
+final class ETags {
+    private ETags() {}
+
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the version an If-Match header requires, or null when any version is accepted.
+     * Weak or foreign tags can never match a strong ETag, so they fail the precondition.
+     */
+    static Long requiredVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // Falls through to the failed precondition
+            }
+        }
+        throw new ResponseStatusException(PRECONDITION_FAILED, "If-Match does not match the current ETag");
+    }
+}
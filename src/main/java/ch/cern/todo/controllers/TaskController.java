@@ -1,77 +1,251 @@
 package ch.cern.todo.controllers;
 
-import ch.cern.todo.model.Category;
+import ch.cern.todo.model.BatchItemResult;
 import ch.cern.todo.model.NewTaskDto;
 import ch.cern.todo.model.PersistedTaskDto;
+import ch.cern.todo.model.Task;
+import ch.cern.todo.model.TaskPage;
+import ch.cern.todo.model.TaskSearchCriteria;
+import ch.cern.todo.model.TaskStats;
+import ch.cern.todo.model.TaskSync;
+import ch.cern.todo.model.TaskUpdateDto;
+import ch.cern.todo.model.VersionedTask;
+import ch.cern.todo.service.TaskChangeFeed;
 import ch.cern.todo.service.TaskService;
+import ch.cern.todo.service.TaskWriteBehind;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
 
-import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.*;
 
 @RestController
 @RequestMapping("tasks")
 public class TaskController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final TaskService taskService;
+    private final TaskChangeFeed taskChangeFeed;
+    private final TaskWriteBehind taskWriteBehind;
+    private final ObjectMapper objectMapper;
 
-    public TaskController(TaskService taskService) {
+    public TaskController(
+        TaskService taskService,
+        TaskChangeFeed taskChangeFeed,
+        TaskWriteBehind taskWriteBehind,
+        ObjectMapper objectMapper
+    ) {
         this.taskService = taskService;
+        this.taskChangeFeed = taskChangeFeed;
+        this.taskWriteBehind = taskWriteBehind;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public PersistedTaskDto createTask(@Valid @RequestBody NewTaskDto newTaskDto, @AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<PersistedTaskDto> createTask(@Valid @RequestBody NewTaskDto newTaskDto, @AuthenticationPrincipal UserDetails userDetails) {
         try {
-            return new PersistedTaskDto(taskService.saveTask(newTaskDto, userDetails.getUsername()));
+            // In write-behind mode the task gets its ID right away but is only written later, hence no version yet
+            if (taskWriteBehind.isEnabled()) {
+                return ResponseEntity.accepted().body(taskWriteBehind.createTask(newTaskDto, userDetails.getUsername()));
+            }
+
+            Task saved = taskService.saveTask(newTaskDto, userDetails.getUsername());
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(ETags.of(saved.getVersion())).body(new PersistedTaskDto(saved));
         } catch (NoSuchElementException e) {
             throw new ResponseStatusException(NOT_FOUND, e.getMessage());
         }
     }
 
     @GetMapping("{id}")
-    public PersistedTaskDto getTask(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<PersistedTaskDto> getTask(
+        @PathVariable Long id,
+        WebRequest request,
+        @AuthenticationPrincipal UserDetails userDetails
+    ) {
         try {
-            return new PersistedTaskDto(taskService.getTask(id, userDetails));
+            Optional<PersistedTaskDto> pending = taskWriteBehind.findPendingTask(id, userDetails);
+            if (pending.isPresent()) {
+                return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(pending.get());
+            }
+
+            // Clients holding the current version get a 304 from the version cache, without loading the task
+            if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(ETags.of(taskService.getTaskVersion(id, userDetails).version()))) {
+                return null;
+            }
+
+            VersionedTask task = taskService.getTask(id, userDetails);
+            return ResponseEntity.ok().eTag(ETags.of(task.version())).body(task.task());
         } catch (NoSuchElementException e) {
             throw new ResponseStatusException(NOT_FOUND, e.getMessage());
         }
     }
 
     @PutMapping("{id}")
-    public PersistedTaskDto updateTask(
+    public ResponseEntity<PersistedTaskDto> updateTask(
         @PathVariable Long id,
         @Valid @RequestBody NewTaskDto newTaskDto,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
         @AuthenticationPrincipal UserDetails userDetails
     ) {
         try {
-            return taskService.updateTask(id, newTaskDto, userDetails);
+            Long requiredVersion = ETags.requiredVersion(ifMatch);
+            if (taskWriteBehind.isEnabled()) {
+                if (requiredVersion == null) {
+                    return ResponseEntity.accepted().body(taskWriteBehind.updateTask(id, newTaskDto, userDetails));
+                }
+                // Conditional updates compare against the stored version, so pending writes must be applied first
+                taskWriteBehind.awaitPendingWrites(List.of(id));
+            }
+
+            Task updated = taskService.updateTask(id, newTaskDto, userDetails, requiredVersion);
+            return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(new PersistedTaskDto(updated));
         } catch (NoSuchElementException e) {
             throw new ResponseStatusException(NOT_FOUND, e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(ifMatch == null ? CONFLICT : PRECONDITION_FAILED, "Task " + id + " has been modified", e);
         }
     }
 
     @DeleteMapping("{id}")
     public void deleteTask(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
-        taskService.deleteTask(id, userDetails);
+        taskWriteBehind.awaitPendingWrites(List.of(id));
+        try {
+            taskService.deleteTask(id, userDetails);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(CONFLICT, "Task " + id + " has been modified", e);
+        }
+    }
+
+    // Batch endpoints report the outcome of each item instead of failing the whole request.
+    // Items are written in a single transaction, so an unexpected error still rolls back all of them.
+    @PostMapping("batch")
+    public List<BatchItemResult> createTasks(@RequestBody List<NewTaskDto> newTaskDtos, @AuthenticationPrincipal UserDetails userDetails) {
+        return taskService.saveTasks(newTaskDtos, userDetails.getUsername());
+    }
+
+    @PutMapping("batch")
+    public List<BatchItemResult> updateTasks(@RequestBody List<TaskUpdateDto> updates, @AuthenticationPrincipal UserDetails userDetails) {
+        taskWriteBehind.awaitPendingWrites(updates.stream().filter(Objects::nonNull).map(TaskUpdateDto::id).toList());
+        return taskService.updateTasks(updates, userDetails);
+    }
+
+    @DeleteMapping("batch")
+    public List<BatchItemResult> deleteTasks(@RequestBody List<Long> ids, @AuthenticationPrincipal UserDetails userDetails) {
+        taskWriteBehind.awaitPendingWrites(ids);
+        return taskService.deleteTasks(ids, userDetails);
     }
 
     @GetMapping("search")
-    public List<PersistedTaskDto> search(
-        @RequestParam(required = false) String author,
-        @RequestParam(required = false) String name,
-        @RequestParam(required = false) String description,
-        @RequestParam(required = false) LocalDateTime deadline,
-        @RequestParam(required = false) Category category,
+    public ResponseEntity<List<?>> search(
+        TaskSearchCriteria criteria,
+        @RequestParam(required = false) Integer limit,
+        @RequestParam(required = false) String after,
+        @RequestParam(required = false) String sort,
+        @RequestParam(required = false) String fields,
         @AuthenticationPrincipal UserDetails userDetails
     ) {
-        return taskService.search(author, name, description, deadline, category, userDetails);
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        // Pages are ordered by id, which is what the cursor is made of, so sorted results are only capped
+        if (sort != null || fields != null) {
+            if (after != null) {
+                throw new ResponseStatusException(BAD_REQUEST, "sort and fields cannot be combined with after");
+            }
+            if (fields != null) {
+                return ResponseEntity.ok(taskService.searchFields(criteria, sort, fields, pageSize, userDetails));
+            }
+            return ResponseEntity.ok(taskService.search(criteria, sort, pageSize, userDetails));
+        }
+
+        TaskPage page = taskService.searchPage(criteria, after, pageSize, userDetails);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.next() != null) {
+            String nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", page.next())
+                .build()
+                .toUriString();
+            response.header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+        }
+        return response.body(page.tasks());
+    }
+
+    @GetMapping("stats")
+    public TaskStats stats(
+        TaskSearchCriteria criteria,
+        @AuthenticationPrincipal UserDetails userDetails
+    ) {
+        return taskService.stats(criteria, userDetails);
+    }
+
+    @GetMapping("sync")
+    public TaskSync sync(
+        @RequestParam(required = false) String since,
+        @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+        @AuthenticationPrincipal UserDetails userDetails
+    ) {
+        return taskService.sync(since, limit, userDetails);
+    }
+
+    // Server-sent events named created, updated or deleted, carrying the task as JSON
+    @GetMapping(path = "changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@AuthenticationPrincipal UserDetails userDetails) {
+        return taskChangeFeed.subscribe(userDetails);
+    }
+
+    // Cheap enough to poll, e.g. for a badge with the number of tasks due today
+    @GetMapping("count")
+    public long count(
+        TaskSearchCriteria criteria,
+        @RequestParam(required = false) LocalDate deadlineDay,
+        @AuthenticationPrincipal UserDetails userDetails
+    ) {
+        return taskService.countTasks(criteria, deadlineDay, userDetails);
+    }
+
+    // Writes the JSON array one task at a time so that memory use does not depend on the result size
+    @GetMapping("search/stream")
+    public ResponseEntity<StreamingResponseBody> streamSearch(
+        TaskSearchCriteria criteria,
+        @AuthenticationPrincipal UserDetails userDetails
+    ) {
+        // Resolved before streaming starts so that access errors can still change the status code
+        TaskSearchCriteria restricted = taskService.restrictToUser(criteria, userDetails);
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                taskService.streamSearch(restricted, task -> {
+                    try {
+                        generator.writeObject(task);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 }
@@ -0,0 +1,57 @@
+package ch.cern.todo.controllers;
+
+import ch.cern.todo.model.Category;
+import ch.cern.todo.model.TaskSearchCriteria;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Binds the search filters shared by the search, stats, stream and count endpoints from the query string,
+// with the conversions of @RequestParam (e.g. category from its ID). Missing filters are null, missing flags false,
+// and values that do not convert are rejected with status 400.
+@Component
+class TaskSearchCriteriaResolver implements HandlerMethodArgumentResolver, WebMvcConfigurer {
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(this);
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.getParameterType() == TaskSearchCriteria.class;
+    }
+
+    @Override
+    public TaskSearchCriteria resolveArgument(
+        MethodParameter parameter,
+        ModelAndViewContainer mavContainer,
+        NativeWebRequest webRequest,
+        WebDataBinderFactory binderFactory
+    ) throws Exception {
+        WebDataBinder binder = binderFactory.createBinder(webRequest, null, parameter.getParameterName());
+        return new TaskSearchCriteria(
+            param(binder, webRequest, "author", String.class),
+            param(binder, webRequest, "name", String.class),
+            param(binder, webRequest, "description", String.class),
+            param(binder, webRequest, "deadline", LocalDateTime.class),
+            param(binder, webRequest, "deadlineFrom", LocalDateTime.class),
+            param(binder, webRequest, "deadlineTo", LocalDateTime.class),
+            Boolean.TRUE.equals(param(binder, webRequest, "dueToday", Boolean.class)),
+            Boolean.TRUE.equals(param(binder, webRequest, "overdue", Boolean.class)),
+            param(binder, webRequest, "category", Category.class)
+        );
+    }
+
+    private static <T> T param(WebDataBinder binder, NativeWebRequest webRequest, String name, Class<T> type) {
+        String value = webRequest.getParameter(name);
+        return value == null ? null : binder.convertIfNecessary(value, type);
+    }
+}
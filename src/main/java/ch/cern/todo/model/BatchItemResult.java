@@ -0,0 +1,19 @@
+package ch.cern.todo.model;
+
+import org.springframework.http.HttpStatus;
+
+// Outcome of one item of a batch request, index being its position in the request
+public record BatchItemResult(
+    int index,
+    Long id,
+    int status,
+    String error
+) {
+    public static BatchItemResult succeeded(int index, Long id, HttpStatus status) {
+        return new BatchItemResult(index, id, status.value(), null);
+    }
+
+    public static BatchItemResult failed(int index, Long id, HttpStatus status, String error) {
+        return new BatchItemResult(index, id, status.value(), error);
+    }
+}
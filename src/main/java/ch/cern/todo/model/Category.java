@@ -1,5 +1,6 @@
 package ch.cern.todo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 @Entity(name = "task_categories")
@@ -22,6 +23,10 @@ public class Category {
     )
     private String description;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     public Category() {}
 
     public Category(NewCategoryDto input) {
@@ -57,4 +62,10 @@ public class Category {
     public void setDescription(String description) {
         this.description = description;
     }
+
+    // Exposed as the ETag header rather than in the body
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
 }
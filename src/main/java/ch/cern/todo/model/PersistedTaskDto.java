@@ -1,5 +1,7 @@
 package ch.cern.todo.model;
 
+import java.time.LocalDateTime;
+
 public record PersistedTaskDto(
     Long id,
     String name,
@@ -8,6 +10,11 @@ public record PersistedTaskDto(
     Long categoryId,
     String author
 ) {
+    // Used by the projection queries of TaskRepository
+    public PersistedTaskDto(Long id, String name, String description, LocalDateTime deadline, Long categoryId, String author) {
+        this(id, name, description, deadline.toString(), categoryId, author);
+    }
+
     public PersistedTaskDto (Task task) {
         this(
             task.getId(),
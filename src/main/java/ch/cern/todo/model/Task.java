@@ -1,13 +1,30 @@
 package ch.cern.todo.model;
 
+import ch.cern.todo.repository.TaskEntityListener;
 import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
 
+// Indexes are created by the Flyway migrations, they are only declared here for reference
 @Entity(name = "tasks")
+@Table(
+    name = "tasks",
+    indexes = {
+        @Index(name = "tasks_author_deadline_idx", columnList = "author, deadline"),
+        @Index(name = "tasks_author_category_idx", columnList = "author, category_id"),
+        @Index(name = "tasks_category_idx", columnList = "category_id"),
+        @Index(name = "tasks_deadline_idx", columnList = "deadline"),
+        @Index(name = "tasks_author_modification_idx", columnList = "author, modification_seq"),
+        @Index(name = "tasks_modification_idx", columnList = "modification_seq"),
+        @Index(name = "tasks_author_name_idx", columnList = "author, task_name")
+    }
+)
+@EntityListeners(TaskEntityListener.class)
 public class Task {
+    // Pooled sequence IDs are assigned without a round-trip per insert, which lets Hibernate batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tasks_seq")
+    @SequenceGenerator(name = "tasks_seq", sequenceName = "tasks_seq", allocationSize = 50)
     @Column(name = "task_id")
     private Long id;
 
@@ -31,16 +48,29 @@ public class Task {
     @Temporal(TemporalType.TIMESTAMP)
     private LocalDateTime deadline;
 
+    // Reads only ever need the category ID, which a lazy proxy answers from the foreign key
     @JoinColumn(
         name = "category_id",
         nullable = false
     )
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     private Category category;
 
     @Column(nullable = false)
     private String author;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    // Assigned by TaskEntityListener on every insert and update
+    @Column(name = "modification_seq", nullable = false)
+    private long modificationSeq;
+
+    // Category of the row as last loaded or written, so that change events can tell where the task moved from
+    @Transient
+    private Long storedCategoryId;
+
     public Task(NewTaskDto newTaskDto, Category category, String username) {
         this.name = newTaskDto.name();
         this.description = newTaskDto.description();
@@ -100,4 +130,29 @@ public class Task {
     public void setAuthor(String author) {
         this.author = author;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    // Only for inserts that bypass Hibernate, which otherwise manages the version
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public long getModificationSeq() {
+        return modificationSeq;
+    }
+
+    public void setModificationSeq(long modificationSeq) {
+        this.modificationSeq = modificationSeq;
+    }
+
+    public Long getStoredCategoryId() {
+        return storedCategoryId;
+    }
+
+    public void setStoredCategoryId(Long storedCategoryId) {
+        this.storedCategoryId = storedCategoryId;
+    }
 }
@@ -0,0 +1,38 @@
+package ch.cern.todo.model;
+
+import java.time.LocalDateTime;
+
+// Snapshot of a task taken when it was written, so that listeners running
+// after the transaction do not need to touch the (possibly detached) entity.
+// The previous category is only known for updates, and not even for all of them.
+public record TaskChangedEvent(
+    Type type,
+    Long id,
+    String name,
+    String description,
+    LocalDateTime deadline,
+    Long categoryId,
+    String author,
+    Long version,
+    Long previousCategoryId
+) {
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public TaskChangedEvent(Type type, Task task) {
+        this(
+            type,
+            task.getId(),
+            task.getName(),
+            task.getDescription(),
+            task.getDeadline(),
+            task.getCategory().getId(),
+            task.getAuthor(),
+            task.getVersion(),
+            type == Type.UPDATED ? task.getStoredCategoryId() : null
+        );
+    }
+}
@@ -0,0 +1,28 @@
+package ch.cern.todo.model;
+
+// Task fields that searches can return and sort on, by their name in PersistedTaskDto
+public enum TaskField {
+    ID("id", "id"),
+    NAME("name", "name"),
+    DESCRIPTION("description", "description"),
+    DEADLINE("deadline", "deadline"),
+    CATEGORY_ID("categoryId", "category.id"),
+    AUTHOR("author", "author");
+
+    private final String jsonName;
+    // Path from the Task entity, category.id is read from the foreign key column
+    private final String attribute;
+
+    TaskField(String jsonName, String attribute) {
+        this.jsonName = jsonName;
+        this.attribute = attribute;
+    }
+
+    public String jsonName() {
+        return jsonName;
+    }
+
+    public String attribute() {
+        return attribute;
+    }
+}
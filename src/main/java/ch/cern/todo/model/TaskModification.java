@@ -0,0 +1,24 @@
+package ch.cern.todo.model;
+
+import java.util.Comparator;
+
+// Position of a change in the sync order. Several tasks can share a modification sequence number
+// (e.g. the ones that existed before it was introduced), so the task ID breaks ties.
+public record TaskModification(
+    long modificationSeq,
+    long taskId
+) implements Comparable<TaskModification> {
+    private static final Comparator<TaskModification> ORDER = Comparator
+        .comparingLong(TaskModification::modificationSeq)
+        .thenComparingLong(TaskModification::taskId);
+
+    // After every task modified at modificationSeq
+    public static TaskModification allOf(long modificationSeq) {
+        return new TaskModification(modificationSeq, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int compareTo(TaskModification other) {
+        return ORDER.compare(this, other);
+    }
+}
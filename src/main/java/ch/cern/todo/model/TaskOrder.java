@@ -0,0 +1,6 @@
+package ch.cern.todo.model;
+
+public record TaskOrder(
+    TaskField field,
+    boolean descending
+) {}
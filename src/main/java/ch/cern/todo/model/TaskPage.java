@@ -0,0 +1,9 @@
+package ch.cern.todo.model;
+
+import java.util.List;
+
+// next is an opaque cursor to pass as "after" to fetch the following page, null on the last page
+public record TaskPage(
+    List<PersistedTaskDto> tasks,
+    String next
+) {}
@@ -0,0 +1,30 @@
+package ch.cern.todo.model;
+
+import java.time.LocalDateTime;
+
+// deadlineFrom is inclusive and deadlineTo exclusive, so that consecutive ranges do not overlap
+public record TaskSearchCriteria(
+    String author,
+    String name,
+    String description,
+    LocalDateTime deadline,
+    LocalDateTime deadlineFrom,
+    LocalDateTime deadlineTo,
+    boolean dueToday,
+    boolean overdue,
+    Category category
+) {
+    public TaskSearchCriteria withAuthor(String author) {
+        return new TaskSearchCriteria(
+            author,
+            name,
+            description,
+            deadline,
+            deadlineFrom,
+            deadlineTo,
+            dueToday,
+            overdue,
+            category
+        );
+    }
+}
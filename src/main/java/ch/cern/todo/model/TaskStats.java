@@ -0,0 +1,18 @@
+package ch.cern.todo.model;
+
+import java.util.Map;
+
+// byAuthor is only filled in for administrators, the other groupings cover the tasks the client may search
+public record TaskStats(
+    long total,
+    Map<Long, Long> byCategory,
+    Map<String, Long> byAuthor,
+    DeadlineCounts byDeadline
+) {
+    // The buckets overlap: a task overdue since this morning is counted in all three
+    public record DeadlineCounts(
+        long overdue,
+        long today,
+        long thisWeek
+    ) {}
+}
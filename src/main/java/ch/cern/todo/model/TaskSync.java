@@ -0,0 +1,15 @@
+package ch.cern.todo.model;
+
+import java.util.List;
+
+// token is passed as "since" to the next sync. When hasMore is set,
+// the next sync should follow right away to fetch the remaining changes.
+// reset is set when the "since" token predates the retained deletions: the sync started over
+// from a full sync, and tasks missing from it (and its following pages) have been deleted.
+public record TaskSync(
+    List<PersistedTaskDto> changed,
+    List<Long> deleted,
+    String token,
+    boolean hasMore,
+    boolean reset
+) {}
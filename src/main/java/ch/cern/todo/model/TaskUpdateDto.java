@@ -0,0 +1,9 @@
+package ch.cern.todo.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+public record TaskUpdateDto(
+    @NotNull Long id,
+    @NotNull @Valid NewTaskDto task
+) {}
@@ -0,0 +1,7 @@
+package ch.cern.todo.model;
+
+// What a conditional request needs to know about a task: its current version and who may read it
+public record TaskVersion(
+    Long version,
+    String author
+) {}
@@ -0,0 +1,16 @@
+package ch.cern.todo.model;
+
+// A task as served by GET /tasks/{id}, with the version for its ETag
+public record VersionedTask(
+    PersistedTaskDto task,
+    Long version
+) {
+    // Rough heap footprint, used to bound the task cache by memory rather than by entry count
+    public int estimatedSize() {
+        return 160 + 2 * (length(task.name()) + length(task.description()) + length(task.deadline()) + length(task.author()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,78 @@
+package ch.cern.todo.repository;
+
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.TreeSet;
+
+// Hands out task modification sequence numbers in blocks of task_modifications_seq, and keeps track
+// of the transactions that used them but have not finished yet. Numbers are assigned when a task is
+// flushed, not when it is committed, so a sync must not move past a number still in flight: its task
+// would become visible later, below the client's token. This assumes a single application instance.
+@Component
+public class ModificationSequence {
+    // Must match the increment of task_modifications_seq
+    static final int BLOCK_SIZE = 50;
+    // Assigned by the database to rows written without a number (see V11), above every watermark
+    public static final long UNTRACKED = Long.MAX_VALUE;
+    // Order of the transactional listeners that must have seen a commit before the watermark moves past it.
+    // Those run when the transaction completes, like the synchronization below, and would otherwise run after it.
+    public static final int BEFORE_WATERMARK = Ordered.LOWEST_PRECEDENCE - 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    // First number used by each unfinished transaction
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private long next = 0;
+    private long limit = 0;
+
+    public ModificationSequence(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public synchronized long next() {
+        ensureAllocated();
+        long value = next++;
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+            && !TransactionSynchronizationManager.hasResource(this)) {
+            // Later numbers of the same transaction are higher, so its first one is enough
+            TransactionSynchronizationManager.bindResource(this, value);
+            inFlight.add(value);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    return Ordered.LOWEST_PRECEDENCE;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ModificationSequence.this);
+                    finished(value);
+                }
+            });
+        }
+        return value;
+    }
+
+    // Every number below the watermark belongs to a finished (committed or rolled back) transaction
+    public synchronized long lowWatermark() {
+        // An exhausted block is fine, the next one starts above it
+        if (limit == 0) {
+            ensureAllocated();
+        }
+        return inFlight.isEmpty() ? next : inFlight.first();
+    }
+
+    private synchronized void finished(long first) {
+        inFlight.remove(first);
+    }
+
+    private void ensureAllocated() {
+        if (next == limit) {
+            next = jdbcTemplate.queryForObject("select next value for task_modifications_seq", Long.class);
+            limit = next + BLOCK_SIZE;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ch.cern.todo.repository;
+
+import ch.cern.todo.model.Task;
+
+import java.util.Collection;
+
+// Inserts of tasks whose IDs were handed out before the write, as done by the write-behind mode
+public interface TaskBulkWrites {
+    // Next ID from the generator Hibernate uses, so it can never be handed out twice
+    Long nextId();
+
+    // Moves the ID generator past id, e.g. for IDs reserved before a crash
+    void skipIdsThrough(long id);
+
+    // One JDBC batch. Hibernate is bypassed, so this also does the work of TaskEntityListener.
+    void insertAll(Collection<Task> tasks);
+
+    // Sequence number of the last write-behind log entry applied, 0 when none
+    long appliedWriteSequence();
+
+    // Must be called in the transaction that applies the writes up to sequence
+    void markWritesApplied(long sequence);
+}
@@ -0,0 +1,92 @@
+package ch.cern.todo.repository;
+
+import ch.cern.todo.model.Task;
+import ch.cern.todo.model.TaskChangedEvent;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static ch.cern.todo.model.TaskChangedEvent.Type.CREATED;
+
+class TaskBulkWritesImpl implements TaskBulkWrites {
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final ModificationSequence modificationSequence;
+    private final ApplicationEventPublisher eventPublisher;
+
+    TaskBulkWritesImpl(
+        EntityManager entityManager,
+        JdbcTemplate jdbcTemplate,
+        ModificationSequence modificationSequence,
+        ApplicationEventPublisher eventPublisher
+    ) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.modificationSequence = modificationSequence;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    @Transactional
+    public Long nextId() {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Task.class);
+        return (Long) ((BeforeExecutionGenerator) persister.getGenerator()).generate(session, null, null, EventType.INSERT);
+    }
+
+    @Override
+    @Transactional
+    public void skipIdsThrough(long id) {
+        // Only every block size-th call reaches the database
+        long next;
+        do {
+            next = nextId();
+        } while (next <= id);
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(Collection<Task> tasks) {
+        List<Object[]> rows = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            task.setVersion(0L);
+            task.setModificationSeq(modificationSequence.next());
+            rows.add(new Object[]{
+                task.getId(),
+                task.getName(),
+                task.getDescription(),
+                task.getDeadline(),
+                task.getCategory().getId(),
+                task.getAuthor(),
+                task.getVersion(),
+                task.getModificationSeq()
+            });
+        }
+        jdbcTemplate.batchUpdate(
+            "insert into tasks (task_id, task_name, task_description, deadline, category_id, author, version, modification_seq) "
+                + "values (?, ?, ?, ?, ?, ?, ?, ?)",
+            rows
+        );
+        tasks.forEach(task -> eventPublisher.publishEvent(new TaskChangedEvent(CREATED, task)));
+    }
+
+    @Override
+    public long appliedWriteSequence() {
+        return jdbcTemplate.queryForObject("select applied_sequence from task_write_behind_state", Long.class);
+    }
+
+    @Override
+    @Transactional
+    public void markWritesApplied(long sequence) {
+        jdbcTemplate.update("update task_write_behind_state set applied_sequence = greatest(applied_sequence, ?)", sequence);
+    }
+}
@@ -0,0 +1,17 @@
+package ch.cern.todo.repository;
+
+import ch.cern.todo.model.Task;
+
+import java.util.Optional;
+
+// Writes that carry the access check in their WHERE clause instead of loading the task first.
+// author restricts the write to the tasks of that author (any author when null),
+// requiredVersion to that version of the task (any version when null).
+// Hibernate is bypassed, so these also do the work of TaskEntityListener.
+public interface TaskConditionalWrites {
+    // Returns the task as it was before, or empty if no task matched. On success, update holds the new state.
+    Optional<Task> updateIfMatches(Task update, String author, Long requiredVersion);
+
+    // Returns the deleted task, or empty if no task matched
+    Optional<Task> deleteIfMatches(Long id, String author);
+}
@@ -0,0 +1,162 @@
+package ch.cern.todo.repository;
+
+import ch.cern.todo.model.Category;
+import ch.cern.todo.model.Task;
+import ch.cern.todo.model.TaskChangedEvent;
+import jakarta.persistence.EntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static ch.cern.todo.model.TaskChangedEvent.Type.DELETED;
+import static ch.cern.todo.model.TaskChangedEvent.Type.UPDATED;
+
+// The counters, tombstones and change events need the previous state of the row. On H2, each write is a
+// single UPDATE or DELETE under the access conditions that returns that state from OLD TABLE (...), and
+// matching no row is the only way to fail. Databases without data change delta tables first lock the row
+// with SELECT ... FOR UPDATE under the same conditions, then write it by primary key.
+class TaskConditionalWritesImpl implements TaskConditionalWrites {
+    private static final String COLUMNS = "task_id, task_name, task_description, deadline, category_id, author, version";
+    private static final String UPDATE = "update tasks set task_name = ?, task_description = ?, deadline = ?, category_id = ?, "
+        + "version = version + 1, modification_seq = ?";
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final ModificationSequence modificationSequence;
+    private final TaskTombstones taskTombstones;
+    private final ApplicationEventPublisher eventPublisher;
+    private volatile Boolean deltaTables;
+
+    TaskConditionalWritesImpl(
+        EntityManager entityManager,
+        JdbcTemplate jdbcTemplate,
+        ModificationSequence modificationSequence,
+        TaskTombstones taskTombstones,
+        ApplicationEventPublisher eventPublisher
+    ) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.modificationSequence = modificationSequence;
+        this.taskTombstones = taskTombstones;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    @Transactional
+    public Optional<Task> updateIfMatches(Task update, String author, Long requiredVersion) {
+        long modificationSeq = modificationSequence.next();
+        List<Object> args = new ArrayList<>(Arrays.asList(
+            update.getName(),
+            update.getDescription(),
+            update.getDeadline(),
+            update.getCategory().getId(),
+            modificationSeq
+        ));
+
+        Optional<Task> before;
+        if (hasDeltaTables()) {
+            String sql = "select " + COLUMNS + " from old table (" + UPDATE + where(update.getId(), author, requiredVersion, args) + ")";
+            before = jdbcTemplate.query(sql, this::toTask, args.toArray()).stream().findFirst();
+        } else {
+            before = lockIfMatches(update.getId(), author, requiredVersion);
+            before.ifPresent(task -> checkWritten(jdbcTemplate.update(
+                UPDATE + where(task.getId(), null, task.getVersion(), args),
+                args.toArray()
+            ), task));
+        }
+
+        before.ifPresent(task -> {
+            update.setAuthor(task.getAuthor());
+            update.setVersion(task.getVersion() + 1);
+            update.setModificationSeq(modificationSeq);
+            update.setStoredCategoryId(task.getCategory().getId());
+            eventPublisher.publishEvent(new TaskChangedEvent(UPDATED, update));
+        });
+        return before;
+    }
+
+    @Override
+    @Transactional
+    public Optional<Task> deleteIfMatches(Long id, String author) {
+        List<Object> args = new ArrayList<>();
+        Optional<Task> deleted;
+        if (hasDeltaTables()) {
+            String sql = "select " + COLUMNS + " from old table (delete from tasks" + where(id, author, null, args) + ")";
+            deleted = jdbcTemplate.query(sql, this::toTask, args.toArray()).stream().findFirst();
+        } else {
+            deleted = lockIfMatches(id, author, null);
+            deleted.ifPresent(task -> checkWritten(jdbcTemplate.update(
+                "delete from tasks" + where(task.getId(), null, task.getVersion(), args),
+                args.toArray()
+            ), task));
+        }
+
+        deleted.ifPresent(task -> {
+            taskTombstones.record(task.getId(), task.getAuthor(), modificationSequence.next());
+            eventPublisher.publishEvent(new TaskChangedEvent(DELETED, task));
+        });
+        return deleted;
+    }
+
+    // The row is locked until the end of the transaction, so the write that follows cannot miss it
+    private Optional<Task> lockIfMatches(Long id, String author, Long requiredVersion) {
+        List<Object> args = new ArrayList<>();
+        String sql = "select " + COLUMNS + " from tasks" + where(id, author, requiredVersion, args) + " for update";
+        return jdbcTemplate.query(sql, this::toTask, args.toArray()).stream().findFirst();
+    }
+
+    // Only a write that bypasses the row lock (e.g. another application instance on a database
+    // without row locking) can get in between, rolled back like a failed optimistic lock
+    private static void checkWritten(int rows, Task task) {
+        if (rows != 1) {
+            throw new OptimisticLockingFailureException("Task " + task.getId() + " was modified concurrently");
+        }
+    }
+
+    private boolean hasDeltaTables() {
+        Boolean supported = deltaTables;
+        if (supported == null) {
+            supported = "H2".equals(jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()
+            ));
+            deltaTables = supported;
+        }
+        return supported;
+    }
+
+    private static String where(Long id, String author, Long requiredVersion, List<Object> args) {
+        StringBuilder where = new StringBuilder(" where task_id = ?");
+        args.add(id);
+        if (author != null) {
+            where.append(" and author = ?");
+            args.add(author);
+        }
+        if (requiredVersion != null) {
+            where.append(" and version = ?");
+            args.add(requiredVersion);
+        }
+        return where.toString();
+    }
+
+    private Task toTask(ResultSet row, int rowNum) throws SQLException {
+        Task task = new Task();
+        task.setId(row.getLong("task_id"));
+        task.setName(row.getString("task_name"));
+        task.setDescription(row.getString("task_description"));
+        task.setDeadline(row.getObject("deadline", LocalDateTime.class));
+        task.setCategory(entityManager.getReference(Category.class, row.getLong("category_id")));
+        task.setAuthor(row.getString("author"));
+        task.setVersion(row.getLong("version"));
+        return task;
+    }
+}
@@ -0,0 +1,150 @@
+package ch.cern.todo.repository;
+
+import ch.cern.todo.model.Task;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+// Task counts per author, category and deadline day, so that badge counts are a primary key lookup.
+// Writers must call apply in the transaction that changes the tasks, writes that bypass
+// TaskService (e.g. manual SQL) are only picked up by rebuild.
+@Repository
+public class TaskCounters {
+    private static final Logger log = LoggerFactory.getLogger(TaskCounters.class);
+
+    private static final String RECOMPUTED = """
+        select author, category_id, cast(deadline as date), count(*)
+        from tasks
+        group by author, category_id, cast(deadline as date)
+        """;
+    private static final String STORED = """
+        select author, category_id, deadline_day, task_count
+        from task_counters
+        where task_count <> 0
+        """;
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate newTransaction;
+
+    public TaskCounters(EntityManager entityManager, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public record Key(String author, Long categoryId, LocalDate deadlineDay) {
+        public static Key of(Task task) {
+            return new Key(task.getAuthor(), task.getCategory().getId(), task.getDeadline().toLocalDate());
+        }
+    }
+
+    @Transactional
+    public void apply(Map<Key, Long> deltas) {
+        deltas.forEach((key, delta) -> {
+            if (delta == 0) {
+                return;
+            }
+            // A counter is only created once, in its own transaction, because concurrent
+            // inserts of the same new key would otherwise fail the later writer
+            if (add(key, delta) == 0) {
+                createIfAbsent(key);
+                add(key, delta);
+            }
+        });
+    }
+
+    private int add(Key key, long delta) {
+        return entityManager.createNativeQuery("""
+                update task_counters set task_count = task_count + :delta
+                where author = :author and category_id = :categoryId and deadline_day = :deadlineDay
+                """)
+            .setParameter("author", key.author())
+            .setParameter("categoryId", key.categoryId())
+            .setParameter("deadlineDay", key.deadlineDay())
+            .setParameter("delta", delta)
+            .executeUpdate();
+    }
+
+    private void createIfAbsent(Key key) {
+        try {
+            newTransaction.executeWithoutResult(status -> jdbcTemplate.update(
+                "insert into task_counters (author, category_id, deadline_day, task_count) values (?, ?, ?, 0)",
+                key.author(),
+                key.categoryId(),
+                key.deadlineDay()
+            ));
+        } catch (DuplicateKeyException e) {
+            // Created concurrently, which is just as good
+        }
+    }
+
+    // Null arguments are not filtered on, only the author is covered by the primary key prefix
+    @Transactional(readOnly = true)
+    public long count(String author, Long categoryId, LocalDate deadlineDay) {
+        StringBuilder sql = new StringBuilder("select coalesce(sum(task_count), 0) from task_counters where 1 = 1");
+        if (author != null) {
+            sql.append(" and author = :author");
+        }
+        if (categoryId != null) {
+            sql.append(" and category_id = :categoryId");
+        }
+        if (deadlineDay != null) {
+            sql.append(" and deadline_day = :deadlineDay");
+        }
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        if (author != null) {
+            query.setParameter("author", author);
+        }
+        if (categoryId != null) {
+            query.setParameter("categoryId", categoryId);
+        }
+        if (deadlineDay != null) {
+            query.setParameter("deadlineDay", deadlineDay);
+        }
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    // Number of counters that differ from a recount of the tasks table, 0 when consistent
+    @Transactional(readOnly = true)
+    public long verify() {
+        Object mismatches = entityManager.createNativeQuery(
+            "select (select count(*) from (" + STORED + " except " + RECOMPUTED + ") missing)"
+                + " + (select count(*) from (" + RECOMPUTED + " except " + STORED + ") extra)"
+        ).getSingleResult();
+        return ((Number) mismatches).longValue();
+    }
+
+    @Transactional
+    public void rebuild() {
+        entityManager.createNativeQuery("delete from task_counters").executeUpdate();
+        entityManager.createNativeQuery(
+            "insert into task_counters (author, category_id, deadline_day, task_count) " + RECOMPUTED
+        ).executeUpdate();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void verifyOnStartup() {
+        long mismatches = verify();
+        if (mismatches > 0) {
+            log.warn("{} task counters are out of date, rebuilding them", mismatches);
+            rebuild();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ch.cern.todo.repository;
+
+import ch.cern.todo.model.Task;
+import ch.cern.todo.model.TaskChangedEvent;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import static ch.cern.todo.model.TaskChangedEvent.Type.*;
+
+// Turns JPA lifecycle callbacks into application events. Listeners should use
+// @TransactionalEventListener so that they only see writes that were committed.
+// Also stamps every write with a modification sequence number for incremental sync.
+@Component
+public class TaskEntityListener {
+    private final ApplicationEventPublisher eventPublisher;
+    private final ModificationSequence modificationSequence;
+    private final TaskTombstones taskTombstones;
+
+    public TaskEntityListener(
+        ApplicationEventPublisher eventPublisher,
+        ModificationSequence modificationSequence,
+        TaskTombstones taskTombstones
+    ) {
+        this.eventPublisher = eventPublisher;
+        this.modificationSequence = modificationSequence;
+        this.taskTombstones = taskTombstones;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void beforeWrite(Task task) {
+        task.setModificationSeq(modificationSequence.next());
+    }
+
+    @PostLoad
+    void afterLoad(Task task) {
+        task.setStoredCategoryId(task.getCategory().getId());
+    }
+
+    @PostPersist
+    void afterInsert(Task task) {
+        eventPublisher.publishEvent(new TaskChangedEvent(CREATED, task));
+        task.setStoredCategoryId(task.getCategory().getId());
+    }
+
+    @PostUpdate
+    void afterUpdate(Task task) {
+        eventPublisher.publishEvent(new TaskChangedEvent(UPDATED, task));
+        task.setStoredCategoryId(task.getCategory().getId());
+    }
+
+    @PostRemove
+    void afterDelete(Task task) {
+        taskTombstones.record(task.getId(), task.getAuthor(), modificationSequence.next());
+        eventPublisher.publishEvent(new TaskChangedEvent(DELETED, task));
+    }
+}
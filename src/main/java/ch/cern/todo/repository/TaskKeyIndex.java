@@ -0,0 +1,177 @@
+package ch.cern.todo.repository;
+
+import ch.cern.todo.model.TaskChangedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import static ch.cern.todo.model.TaskChangedEvent.Type.CREATED;
+import static ch.cern.todo.model.TaskChangedEvent.Type.DELETED;
+
+// In-memory postings of task IDs by author and by category, so that searches combining them
+// (every non-admin search filters on its author) can be narrowed down to primary key lookups.
+// Authors are few and repeat on every row, so they are interned into int IDs that index the postings.
+// Tasks are indexed once their transaction commits: the ones written since the modification sequence
+// watermark, or outside the application, may be missing and TaskService looks them up separately.
+@Component
+public class TaskKeyIndex {
+    // Past this many candidates an IN list is no cheaper than the author and category indexes
+    public static final int MAX_CANDIDATES = 1000;
+    // Never written, stands for authors and categories without tasks
+    private static final SortedLongArray EMPTY = new SortedLongArray();
+
+    private final TaskRepository taskRepository;
+    private final Map<String, Integer> authorIds = new HashMap<>();
+    private final List<SortedLongArray> byAuthor = new ArrayList<>();
+    private final Map<Long, SortedLongArray> byCategory = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready = false;
+
+    public TaskKeyIndex(TaskRepository taskRepository) {
+        this.taskRepository = taskRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        try (Stream<Object[]> rows = taskRepository.streamKeyColumns()) {
+            rows.forEach(row -> {
+                long id = (Long) row[0];
+                lock.writeLock().lock();
+                try {
+                    // Tasks indexed concurrently from their change event are more recent
+                    SortedLongArray authorPosting = authorPosting((String) row[1]);
+                    if (authorPosting.add(id)) {
+                        categoryPosting((Long) row[2]).add(id);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        }
+        ready = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ModificationSequence.BEFORE_WATERMARK)
+    public void onTaskChanged(TaskChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.type() == DELETED) {
+                authorPosting(event.author()).remove(event.id());
+                categoryPosting(event.categoryId()).remove(event.id());
+                return;
+            }
+            // The author of a task never changes, but its category may have
+            authorPosting(event.author()).add(event.id());
+            Long previousCategoryId = event.previousCategoryId();
+            if (previousCategoryId != null) {
+                if (!previousCategoryId.equals(event.categoryId())) {
+                    categoryPosting(previousCategoryId).remove(event.id());
+                }
+            } else if (event.type() != CREATED) {
+                // Writes that did not know the previous state, e.g. adopted untracked writes
+                byCategory.forEach((categoryId, posting) -> {
+                    if (!categoryId.equals(event.categoryId())) {
+                        posting.remove(event.id());
+                    }
+                });
+            }
+            categoryPosting(event.categoryId()).add(event.id());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the IDs of the tasks of that author and category (null filters are ignored), or an empty optional
+     * when neither filter is set, the index is not built yet or there are more than MAX_CANDIDATES of them.
+     * Tasks written at or above the modification sequence watermark may be missing, see TaskService.
+     */
+    public Optional<long[]> candidates(String author, Long categoryId) {
+        if (!ready || (author == null && categoryId == null)) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            SortedLongArray authorPosting = author == null ? null : existingAuthorPosting(author);
+            SortedLongArray categoryPosting = categoryId == null ? null : byCategory.getOrDefault(categoryId, EMPTY);
+            if (authorPosting == null || categoryPosting == null) {
+                SortedLongArray posting = authorPosting != null ? authorPosting : categoryPosting;
+                return posting.size() > MAX_CANDIDATES ? Optional.empty() : Optional.of(posting.toArray());
+            }
+
+            // Walks the smaller posting and looks its IDs up in the larger one
+            SortedLongArray smaller = authorPosting.size() <= categoryPosting.size() ? authorPosting : categoryPosting;
+            SortedLongArray larger = smaller == authorPosting ? categoryPosting : authorPosting;
+            long[] result = new long[Math.min(smaller.size(), MAX_CANDIDATES + 1)];
+            int count = 0;
+            for (int i = 0; i < smaller.size(); i++) {
+                long id = smaller.get(i);
+                if (larger.contains(id)) {
+                    if (count == MAX_CANDIDATES) {
+                        return Optional.empty();
+                    }
+                    result[count++] = id;
+                }
+            }
+            return Optional.of(Arrays.copyOf(result, count));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Keeps the IDs that belong to tasks of that author and category (null filters are ignored)
+    public long[] retainMatching(long[] ids, String author, Long categoryId) {
+        if (!ready || (author == null && categoryId == null)) {
+            return ids;
+        }
+
+        lock.readLock().lock();
+        try {
+            SortedLongArray authorPosting = author == null ? null : existingAuthorPosting(author);
+            SortedLongArray categoryPosting = categoryId == null ? null : byCategory.getOrDefault(categoryId, EMPTY);
+            long[] result = new long[ids.length];
+            int count = 0;
+            for (long id : ids) {
+                if ((authorPosting == null || authorPosting.contains(id)) && (categoryPosting == null || categoryPosting.contains(id))) {
+                    result[count++] = id;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private SortedLongArray existingAuthorPosting(String author) {
+        Integer authorId = authorIds.get(author);
+        return authorId == null ? EMPTY : byAuthor.get(authorId);
+    }
+
+    private SortedLongArray authorPosting(String author) {
+        Integer authorId = authorIds.computeIfAbsent(author, key -> {
+            byAuthor.add(new SortedLongArray());
+            return byAuthor.size() - 1;
+        });
+        return byAuthor.get(authorId);
+    }
+
+    private SortedLongArray categoryPosting(Long categoryId) {
+        return byCategory.computeIfAbsent(categoryId, key -> new SortedLongArray());
+    }
+}
@@ -0,0 +1,40 @@
+package ch.cern.todo.repository;
+
+import ch.cern.todo.model.PersistedTaskDto;
+import ch.cern.todo.model.Task;
+import ch.cern.todo.model.TaskField;
+import ch.cern.todo.model.TaskModification;
+import ch.cern.todo.model.TaskOrder;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.stream.Stream;
+
+// Specification searches that select the DTO columns or aggregates directly instead of hydrating Task entities
+public interface TaskProjections {
+    List<PersistedTaskDto> findDtos(Specification<Task> spec);
+
+    // Sorted by the database, ties are broken by id so that the order is stable. The first limit tasks only.
+    List<PersistedTaskDto> findDtos(Specification<Task> spec, List<TaskOrder> order, int limit);
+
+    // Selects only the given columns, each row maps the JSON names of the fields to their values
+    List<Map<String, Object>> findFields(Specification<Task> spec, List<TaskField> fields, List<TaskOrder> order, int limit);
+
+    // Keyset page: callers narrow the specification with idGreaterThan to move past the previous page
+    List<PersistedTaskDto> findDtoPageOrderedById(Specification<Task> spec, int limit);
+
+    // Must be consumed inside a transaction and closed by the caller
+    Stream<PersistedTaskDto> streamDtosOrderedById(Specification<Task> spec);
+
+    // Tasks by modification, the limit first ones after the given position
+    SortedMap<TaskModification, PersistedTaskDto> findDtosModifiedAfter(Specification<Task> spec, TaskModification after, int limit);
+
+    Map<Long, Long> countByCategory(Specification<Task> spec);
+
+    Map<String, Long> countByAuthor(Specification<Task> spec);
+
+    // Counts the tasks matching spec and each of the conditions, in a single scan
+    List<Long> countMatching(Specification<Task> spec, List<Specification<Task>> conditions);
+}
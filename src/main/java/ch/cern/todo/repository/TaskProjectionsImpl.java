@@ -0,0 +1,233 @@
+package ch.cern.todo.repository;
+
+import ch.cern.todo.model.PersistedTaskDto;
+import ch.cern.todo.model.Task;
+import ch.cern.todo.model.TaskField;
+import ch.cern.todo.model.TaskModification;
+import ch.cern.todo.model.TaskOrder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+class TaskProjectionsImpl implements TaskProjections {
+    private final EntityManager entityManager;
+
+    TaskProjectionsImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PersistedTaskDto> findDtos(Specification<Task> spec) {
+        return query(spec, null).getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PersistedTaskDto> findDtos(Specification<Task> spec, List<TaskOrder> order, int limit) {
+        return query(spec, order).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findFields(Specification<Task> spec, List<TaskField> fields, List<TaskOrder> order, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Task> root = query.from(Task.class);
+
+        List<Selection<?>> columns = new ArrayList<>(fields.size());
+        for (TaskField field : fields) {
+            columns.add(path(root, field));
+        }
+        query.multiselect(columns);
+        where(query, spec.toPredicate(root, query, cb));
+        query.orderBy(orders(cb, root, order));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).setMaxResults(limit).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                Object value = tuple.get(i);
+                // Same format as PersistedTaskDto
+                row.put(fields.get(i).jsonName(), value instanceof LocalDateTime deadline ? deadline.toString() : value);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PersistedTaskDto> findDtoPageOrderedById(Specification<Task> spec, int limit) {
+        return query(spec, List.of()).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<PersistedTaskDto> streamDtosOrderedById(Specification<Task> spec) {
+        return query(spec, List.of()).getResultStream();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SortedMap<TaskModification, PersistedTaskDto> findDtosModifiedAfter(Specification<Task> spec, TaskModification after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Task> root = query.from(Task.class);
+        Path<Long> sequence = root.get("modificationSeq");
+        Path<Long> id = root.get("id");
+
+        query.multiselect(
+            sequence,
+            id,
+            root.get("name"),
+            root.get("description"),
+            root.get("deadline"),
+            root.get("category").get("id"),
+            root.get("author")
+        );
+        Predicate modified = cb.or(
+            cb.greaterThan(sequence, after.modificationSeq()),
+            cb.and(cb.equal(sequence, after.modificationSeq()), cb.greaterThan(id, after.taskId()))
+        );
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        query.where(predicate == null ? modified : cb.and(predicate, modified));
+        query.orderBy(cb.asc(sequence), cb.asc(id));
+
+        SortedMap<TaskModification, PersistedTaskDto> tasks = new TreeMap<>();
+        for (Object[] row : entityManager.createQuery(query).setMaxResults(limit).getResultList()) {
+            tasks.put(new TaskModification((Long) row[0], (Long) row[1]), new PersistedTaskDto(
+                (Long) row[1],
+                (String) row[2],
+                (String) row[3],
+                (LocalDateTime) row[4],
+                (Long) row[5],
+                (String) row[6]
+            ));
+        }
+        return tasks;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Long> countByCategory(Specification<Task> spec) {
+        return countGroupedBy(spec, root -> root.get("category").get("id"));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Long> countByAuthor(Specification<Task> spec) {
+        return countGroupedBy(spec, root -> root.get("author"));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> countMatching(Specification<Task> spec, List<Specification<Task>> conditions) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Task> root = query.from(Task.class);
+
+        List<Selection<?>> sums = new ArrayList<>(conditions.size());
+        for (Specification<Task> condition : conditions) {
+            sums.add(cb.sum(cb.<Long>selectCase().when(condition.toPredicate(root, query, cb), 1L).otherwise(0L)));
+        }
+        query.multiselect(sums);
+        where(query, spec.toPredicate(root, query, cb));
+
+        // A single selection comes back unwrapped, and sums over no rows are null
+        Object result = entityManager.createQuery(query).getSingleResult();
+        Object[] row = result instanceof Object[] values ? values : new Object[]{result};
+        List<Long> counts = new ArrayList<>(row.length);
+        for (Object count : row) {
+            counts.add(count == null ? 0L : ((Number) count).longValue());
+        }
+        return counts;
+    }
+
+    private <K> Map<K, Long> countGroupedBy(Specification<Task> spec, Function<Root<Task>, Path<K>> key) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Task> root = query.from(Task.class);
+        Path<K> group = key.apply(root);
+
+        query.multiselect(group, cb.count(root));
+        where(query, spec.toPredicate(root, query, cb));
+        query.groupBy(group).orderBy(cb.asc(group));
+
+        Map<K, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : entityManager.createQuery(query).getResultList()) {
+            @SuppressWarnings("unchecked")
+            K value = (K) row[0];
+            counts.put(value, (Long) row[1]);
+        }
+        return counts;
+    }
+
+    private static void where(CriteriaQuery<?> query, Predicate predicate) {
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+
+    private static Path<?> path(Root<Task> root, TaskField field) {
+        Path<?> path = root;
+        for (String attribute : field.attribute().split("\\.")) {
+            path = path.get(attribute);
+        }
+        return path;
+    }
+
+    private static List<Order> orders(CriteriaBuilder cb, Root<Task> root, List<TaskOrder> order) {
+        List<Order> orders = new ArrayList<>(order.size() + 1);
+        for (TaskOrder taskOrder : order) {
+            Path<?> path = path(root, taskOrder.field());
+            orders.add(taskOrder.descending() ? cb.desc(path) : cb.asc(path));
+        }
+        if (order.stream().noneMatch(taskOrder -> taskOrder.field() == TaskField.ID)) {
+            orders.add(cb.asc(root.get("id")));
+        }
+        return orders;
+    }
+
+    // A null order leaves the rows in whatever order the database returns them
+    private TypedQuery<PersistedTaskDto> query(Specification<Task> spec, List<TaskOrder> order) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<PersistedTaskDto> query = cb.createQuery(PersistedTaskDto.class);
+        Root<Task> root = query.from(Task.class);
+
+        // category.id is read from the foreign key column, so the categories table is not joined
+        query.select(cb.construct(
+            PersistedTaskDto.class,
+            root.get("id"),
+            root.get("name"),
+            root.get("description"),
+            root.get("deadline"),
+            root.get("category").get("id"),
+            root.get("author")
+        ));
+
+        where(query, spec.toPredicate(root, query, cb));
+        if (order != null) {
+            query.orderBy(orders(cb, root, order));
+        }
+        return entityManager.createQuery(query);
+    }
+}
@@ -1,8 +1,30 @@
 package ch.cern.todo.repository;
 
 import ch.cern.todo.model.Task;
+import ch.cern.todo.model.TaskVersion;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 
-public interface TaskRepository extends JpaRepository<Task, Long>, JpaSpecificationExecutor<Task> {
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface TaskRepository
+    extends JpaRepository<Task, Long>, JpaSpecificationExecutor<Task>, TaskProjections, TaskBulkWrites, TaskConditionalWrites {
+    @Query("select new ch.cern.todo.model.TaskVersion(t.version, t.author) from tasks t where t.id = :id")
+    Optional<TaskVersion> findVersionById(Long id);
+
+    // id, name and description of every task, without hydrating entities. In ID order, which appends to the postings.
+    @Query("select t.id, t.name, t.description from tasks t order by t.id")
+    Stream<Object[]> streamTextColumns();
+
+    // id, author and category ID of every task, for TaskKeyIndex. In ID order, which appends to the postings.
+    @Query("select t.id, t.author, t.category.id from tasks t order by t.id")
+    Stream<Object[]> streamKeyColumns();
+
+    // Tasks written at or above that modification sequence number, including untracked writes
+    @Query("select t.id from tasks t where t.modificationSeq >= :modificationSeq")
+    List<Long> findIdsModifiedFrom(long modificationSeq, Limit limit);
 }
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 
 @Component
 public class TaskSpecification {
@@ -24,6 +25,16 @@ public class TaskSpecification {
             -> cb.equal(root.get("deadline"), deadline);
     }
 
+    public static Specification<Task> deadlineAtOrAfter(LocalDateTime from) {
+        return (root, query, cb)
+            -> cb.greaterThanOrEqualTo(root.<LocalDateTime>get("deadline"), from);
+    }
+
+    public static Specification<Task> deadlineBefore(LocalDateTime to) {
+        return (root, query, cb)
+            -> cb.lessThan(root.<LocalDateTime>get("deadline"), to);
+    }
+
     public static Specification<Task> categoryEqual(Category category) {
         return (root, query, cb)
             -> cb.equal(root.get("category"), category);
@@ -33,4 +44,14 @@ public class TaskSpecification {
         return (root, query, cb)
             -> cb.equal(root.get("author"), author);
     }
+
+    public static Specification<Task> idIn(Collection<Long> ids) {
+        return (root, query, cb)
+            -> ids.isEmpty() ? cb.disjunction() : root.get("id").in(ids);
+    }
+
+    public static Specification<Task> idGreaterThan(Long id) {
+        return (root, query, cb)
+            -> cb.greaterThan(root.<Long>get("id"), id);
+    }
 }
@@ -0,0 +1,136 @@
+package ch.cern.todo.repository;
+
+import ch.cern.todo.model.TaskChangedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static ch.cern.todo.model.TaskChangedEvent.Type.DELETED;
+
+// In-memory substring index over task names and descriptions, used to narrow
+// LIKE '%x%' searches down to a handful of primary key lookups.
+// Changed and deleted tasks leave stale postings behind (see TrigramIndex), which make postings
+// hit MAX_CANDIDATES sooner, so the index is rebuilt in the background once the writes since the
+// last rebuild reach a quarter of the indexed tasks. Like TaskKeyIndex, it may miss the tasks written
+// since the modification sequence watermark or outside the application, which TaskService adds.
+@Component
+public class TaskTextIndex {
+    // Past this many candidates an IN list is no cheaper than scanning
+    static final int MAX_CANDIDATES = 1000;
+    // Small tables are not worth rebuilding for
+    static final long MIN_CHANGES_BEFORE_REBUILD = 10_000;
+
+    private final TaskRepository taskRepository;
+    private final TransactionTemplate readOnly;
+    private volatile Indexes current = new Indexes();
+    // Also receives the changes while a rebuild reads the table, so that none are missing after the swap
+    private volatile Indexes building;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong changesSinceRebuild = new AtomicLong();
+    private volatile long indexedTasks = 0;
+    private volatile boolean ready = false;
+
+    public TaskTextIndex(TaskRepository taskRepository, PlatformTransactionManager transactionManager) {
+        this.taskRepository = taskRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Indexes rebuilt = new Indexes();
+            building = rebuilt;
+            changesSinceRebuild.set(0);
+            long[] count = {0};
+            readOnly.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = taskRepository.streamTextColumns()) {
+                    rows.forEach(row -> {
+                        rebuilt.add((Long) row[0], (String) row[1], (String) row[2]);
+                        count[0]++;
+                    });
+                }
+            });
+            current = rebuilt;
+            indexedTasks = count[0];
+            ready = true;
+        } finally {
+            building = null;
+            rebuilding.set(false);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ModificationSequence.BEFORE_WATERMARK)
+    public void onTaskChanged(TaskChangedEvent event) {
+        // Inserts leave nothing stale behind, but grow the table the threshold is relative to
+        long changes = changesSinceRebuild.incrementAndGet();
+        if (ready && changes > Math.max(indexedTasks / 4, MIN_CHANGES_BEFORE_REBUILD) && !rebuilding.get()) {
+            Thread.ofVirtual().name("task-text-index-rebuild").start(this::rebuild);
+        }
+        // Nothing to remove: the IDs of deleted tasks never come back, and the stale postings
+        // of a changed task only add false positives. Read in this order so that a rebuild
+        // finishing in between cannot drop the change.
+        Indexes next = building;
+        Indexes target = current;
+        if (event.type() != DELETED) {
+            target.add(event.id(), event.name(), event.description());
+            if (next != null && next != target) {
+                next.add(event.id(), event.name(), event.description());
+            }
+        }
+    }
+
+    /**
+     * Returns the sorted IDs of tasks that may match both substrings (null substrings are ignored),
+     * or an empty optional when the index cannot narrow the search and the database must scan.
+     * Tasks written at or above the modification sequence watermark may be missing, see TaskService.
+     */
+    public Optional<long[]> candidates(String nameSubstring, String descriptionSubstring) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        Indexes indexes = current;
+        long[] names = isIndexable(nameSubstring) ? indexes.names().candidates(nameSubstring, MAX_CANDIDATES) : null;
+        long[] descriptions = isIndexable(descriptionSubstring)
+            ? indexes.descriptions().candidates(descriptionSubstring, MAX_CANDIDATES)
+            : null;
+        if (names == null || descriptions == null) {
+            return Optional.ofNullable(names != null ? names : descriptions);
+        }
+        return Optional.of(SortedLongArray.intersect(names, descriptions));
+    }
+
+    // LIKE wildcards in the pattern cannot be answered from literal trigrams
+    private static boolean isIndexable(String substring) {
+        return substring != null
+            && substring.length() >= TrigramIndex.GRAM_LENGTH
+            && substring.indexOf('%') < 0
+            && substring.indexOf('_') < 0
+            && substring.indexOf('\\') < 0;
+    }
+
+    private record Indexes(TrigramIndex names, TrigramIndex descriptions) {
+        Indexes() {
+            this(new TrigramIndex(), new TrigramIndex());
+        }
+
+        void add(long id, String name, String description) {
+            names.add(id, name);
+            descriptions.add(id, description);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ch.cern.todo.repository;
+
+import ch.cern.todo.model.TaskModification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// IDs of deleted tasks with the modification sequence number of their deletion.
+// Written with JDBC because it happens while Hibernate is flushing the delete.
+@Repository
+public class TaskTombstones {
+    private final JdbcTemplate jdbcTemplate;
+
+    public TaskTombstones(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void record(Long taskId, String author, long modificationSeq) {
+        jdbcTemplate.update(
+            "insert into task_tombstones (task_id, author, modification_seq) values (?, ?, ?)",
+            taskId, author, modificationSeq
+        );
+    }
+
+    // Deletions in sync order after the given position, for all authors when author is null
+    public List<TaskModification> findDeletedAfter(String author, TaskModification after, int limit) {
+        String sql = "select modification_seq, task_id from task_tombstones"
+            + " where (modification_seq > ? or (modification_seq = ? and task_id > ?))"
+            + (author == null ? "" : " and author = ?")
+            + " order by modification_seq, task_id limit ?";
+        Object[] args = author == null
+            ? new Object[]{after.modificationSeq(), after.modificationSeq(), after.taskId(), limit}
+            : new Object[]{after.modificationSeq(), after.modificationSeq(), after.taskId(), author, limit};
+        return jdbcTemplate.query(sql, (row, i) -> new TaskModification(row.getLong(1), row.getLong(2)), args);
+    }
+
+    // Tokens below the horizon may have missed pruned deletions
+    public long horizon() {
+        return jdbcTemplate.queryForObject("select modification_seq from task_sync_horizon", Long.class);
+    }
+
+    // Removes the tombstones deleted before the given time, along with any lower numbered ones,
+    // so that everything at or below the new horizon is gone. Returns the number of tombstones removed.
+    @Transactional
+    public int prune(LocalDateTime deletedBefore) {
+        Long horizon = jdbcTemplate.queryForObject(
+            "select max(modification_seq) from task_tombstones where deleted_at < ?",
+            Long.class,
+            deletedBefore
+        );
+        if (horizon == null) {
+            return 0;
+        }
+        jdbcTemplate.update("update task_sync_horizon set modification_seq = greatest(modification_seq, ?)", horizon);
+        return jdbcTemplate.update("delete from task_tombstones where modification_seq <= ?", horizon);
+    }
+}
@@ -0,0 +1,91 @@
+package ch.cern.todo.repository;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index from every 3-character substring of a text to the IDs of the
+// documents containing it. Any substring of at least 3 characters can then be
+// answered by intersecting the posting lists of its trigrams. Results are a
+// superset of the exact matches (trigrams may appear in another order), so
+// callers must still verify candidates.
+//
+// The texts themselves are not kept, so the trigrams of a document cannot be found again to
+// remove them: a changed or deleted document stays in the postings of its previous text,
+// which only adds false positives, until the owner replaces the index with a rebuilt one.
+class TrigramIndex {
+    static final int GRAM_LENGTH = 3;
+
+    private final Map<String, SortedLongArray> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    void add(long id, String text) {
+        if (text == null) return;
+        lock.writeLock().lock();
+        try {
+            for (String gram : grams(text)) {
+                postings.computeIfAbsent(gram, key -> new SortedLongArray()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the sorted IDs of the documents that may contain the substring,
+     * or null when there may be more than maxCandidates of them.
+     */
+    long[] candidates(String substring, int maxCandidates) {
+        if (substring.length() < GRAM_LENGTH) {
+            throw new IllegalArgumentException("Substring must have at least " + GRAM_LENGTH + " characters");
+        }
+
+        lock.readLock().lock();
+        try {
+            List<SortedLongArray> matching = new ArrayList<>();
+            for (String gram : grams(substring)) {
+                SortedLongArray posting = postings.get(gram);
+                if (posting == null) {
+                    return new long[0];
+                }
+                matching.add(posting);
+            }
+
+            // Start from the rarest trigram to keep the intersection small, and give up
+            // before copying anything when even that one is too common to narrow the search
+            matching.sort(Comparator.comparingInt(SortedLongArray::size));
+            SortedLongArray rarest = matching.getFirst();
+            if (rarest.size() > maxCandidates) {
+                return null;
+            }
+            long[] result = new long[rarest.size()];
+            int count = 0;
+            for (int i = 0; i < rarest.size(); i++) {
+                long id = rarest.get(i);
+                if (inAll(matching, id)) {
+                    result[count++] = id;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean inAll(List<SortedLongArray> matching, long id) {
+        for (int i = 1; i < matching.size(); i++) {
+            if (!matching.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+}
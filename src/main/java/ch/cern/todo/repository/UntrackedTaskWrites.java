@@ -0,0 +1,108 @@
+package ch.cern.todo.repository;
+
+import ch.cern.todo.model.TaskChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static ch.cern.todo.model.TaskChangedEvent.Type.UPDATED;
+
+// Rows inserted or updated outside the application (SQL console, scripts, seeding over plain JDBC) are
+// stamped ModificationSequence.UNTRACKED by the database. Searches look them up on every query and syncs
+// send them again every time, so they are given a regular number and announced like any other update,
+// which also brings the in-memory indexes and caches up to date. Deletions outside the application are not
+// noticed, their stale index entries only add false positives. The task counters are only fixed by a rebuild.
+@Component
+public class UntrackedTaskWrites {
+    private static final Logger log = LoggerFactory.getLogger(UntrackedTaskWrites.class);
+    static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ModificationSequence modificationSequence;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    public UntrackedTaskWrites(
+        JdbcTemplate jdbcTemplate,
+        ModificationSequence modificationSequence,
+        ApplicationEventPublisher eventPublisher,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.modificationSequence = modificationSequence;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${todo.untracked-writes.scan-interval}")
+    public int adopt() {
+        int adopted = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> adoptBatch());
+            adopted += batch;
+        } while (batch == BATCH_SIZE);
+        if (adopted > 0) {
+            log.info("Adopted {} tasks written outside the application", adopted);
+        }
+        return adopted;
+    }
+
+    private int adoptBatch() {
+        List<Long> ids = jdbcTemplate.queryForList(
+            "select task_id from tasks where modification_seq = ? order by task_id limit ?",
+            Long.class,
+            ModificationSequence.UNTRACKED,
+            BATCH_SIZE
+        );
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        // Written first, so that the rows read below are locked until the events are published.
+        // The version is bumped for the caches and ETags, the write may not have done it.
+        long modificationSeq = modificationSequence.next();
+        String in = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        jdbcTemplate.update(
+            "update tasks set modification_seq = ?, version = version + 1 "
+                + "where modification_seq = ? and task_id in (" + in + ")",
+            args(ids, modificationSeq, ModificationSequence.UNTRACKED)
+        );
+
+        List<TaskChangedEvent> events = jdbcTemplate.query(
+            "select task_id, task_name, task_description, deadline, category_id, author, version from tasks "
+                + "where modification_seq = ? and task_id in (" + in + ")",
+            (row, rowNum) -> new TaskChangedEvent(
+                UPDATED,
+                row.getLong("task_id"),
+                row.getString("task_name"),
+                row.getString("task_description"),
+                row.getObject("deadline", LocalDateTime.class),
+                row.getLong("category_id"),
+                row.getString("author"),
+                row.getLong("version"),
+                null
+            ),
+            args(ids, modificationSeq)
+        );
+        events.forEach(eventPublisher::publishEvent);
+        return ids.size();
+    }
+
+    private static Object[] args(List<Long> ids, Object... leading) {
+        List<Object> args = new ArrayList<>(Arrays.asList(leading));
+        args.addAll(ids);
+        return args.toArray();
+    }
+}
@@ -0,0 +1,59 @@
+package ch.cern.todo.security;
+
+import org.springframework.cache.Cache;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Remembers successful password checks for a while, so that clients sending the same
+// credentials on every request only pay for the (deliberately slow) hash comparison once.
+// Only a digest of the credentials is kept, and failed checks are never cached.
+public class CachingPasswordEncoder implements PasswordEncoder {
+    private final PasswordEncoder delegate;
+    private final Cache matches;
+
+    public CachingPasswordEncoder(PasswordEncoder delegate, Cache matches) {
+        this.delegate = delegate;
+        this.matches = matches;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+
+        // Keyed on the stored hash too, so a password change invalidates the entry
+        String key = digest(encodedPassword + '\0' + rawPassword);
+        if (matches.get(key) != null) {
+            return true;
+        }
+        boolean matched = delegate.matches(rawPassword, encodedPassword);
+        if (matched) {
+            matches.put(key, Boolean.TRUE);
+        }
+        return matched;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private static String digest(String value) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required by the Java platform", e);
+        }
+    }
+}
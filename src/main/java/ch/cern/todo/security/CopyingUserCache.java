@@ -0,0 +1,36 @@
+package ch.cern.todo.security;
+
+import org.springframework.cache.Cache;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+
+// Stores and hands out copies of the users, because the authentication manager erases the
+// password of the principal it returns, which would otherwise be the cached instance.
+// Copies are TodoUsers, so their roles are resolved once when they enter the cache.
+public class CopyingUserCache implements UserCache {
+    private final Cache cache;
+
+    public CopyingUserCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        UserDetails cached = cache.get(username, UserDetails.class);
+        return cached == null ? null : copy(cached);
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        cache.put(user.getUsername(), copy(user));
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        cache.evict(username);
+    }
+
+    private static UserDetails copy(UserDetails user) {
+        return new TodoUser(user);
+    }
+}
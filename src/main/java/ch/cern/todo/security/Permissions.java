@@ -0,0 +1,24 @@
+package ch.cern.todo.security;
+
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+// Access checks shared by the services and the @PreAuthorize expressions ("@permissions.isAdmin(principal)").
+// Principals authenticated by the application are TodoUsers whose admin flag is already resolved,
+// other principals (e.g. in tests) fall back to scanning their authorities.
+@Component("permissions")
+public class Permissions {
+    public boolean isAdmin(Object principal) {
+        if (principal instanceof TodoUser todoUser) {
+            return todoUser.isAdmin();
+        }
+        if (principal instanceof UserDetails userDetails) {
+            return Role.ADMIN.isIn(Role.toBits(userDetails.getAuthorities()));
+        }
+        return false;
+    }
+
+    public boolean canAccessTask(String taskAuthor, UserDetails userDetails) {
+        return isAdmin(userDetails) || taskAuthor.equals(userDetails.getUsername());
+    }
+}
@@ -0,0 +1,35 @@
+package ch.cern.todo.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Roles known to the application, each assigned one bit so that a user's roles fit in an int
+public enum Role {
+    USER,
+    ADMIN;
+
+    private static final Map<String, Role> BY_AUTHORITY = Map.of(
+        "ROLE_USER", USER,
+        "ROLE_ADMIN", ADMIN
+    );
+
+    private final int bit = 1 << ordinal();
+
+    public boolean isIn(int roles) {
+        return (roles & bit) != 0;
+    }
+
+    // Authorities that are not application roles are ignored
+    public static int toBits(Collection<? extends GrantedAuthority> authorities) {
+        int roles = 0;
+        for (GrantedAuthority authority : authorities) {
+            Role role = BY_AUTHORITY.get(authority.getAuthority());
+            if (role != null) {
+                roles |= role.bit;
+            }
+        }
+        return roles;
+    }
+}
@@ -0,0 +1,30 @@
+package ch.cern.todo.security;
+
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+// Principal carrying its roles as precomputed bits, so access checks do not have to walk the authorities
+public class TodoUser extends User {
+    private final int roles;
+
+    public TodoUser(UserDetails user) {
+        super(
+            user.getUsername(),
+            user.getPassword(),
+            user.isEnabled(),
+            user.isAccountNonExpired(),
+            user.isCredentialsNonExpired(),
+            user.isAccountNonLocked(),
+            user.getAuthorities()
+        );
+        this.roles = user instanceof TodoUser todoUser ? todoUser.roles : Role.toBits(getAuthorities());
+    }
+
+    public boolean hasRole(Role role) {
+        return role.isIn(roles);
+    }
+
+    public boolean isAdmin() {
+        return hasRole(Role.ADMIN);
+    }
+}
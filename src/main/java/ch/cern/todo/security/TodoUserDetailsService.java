@@ -0,0 +1,19 @@
+package ch.cern.todo.security;
+
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+// Resolves the roles of a user once, when it is loaded, rather than on each access check
+public class TodoUserDetailsService implements UserDetailsService {
+    private final UserDetailsService delegate;
+
+    public TodoUserDetailsService(UserDetailsService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return new TodoUser(delegate.loadUserByUsername(username));
+    }
+}
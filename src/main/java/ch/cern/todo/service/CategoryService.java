@@ -4,35 +4,62 @@ import ch.cern.todo.model.Category;
 import ch.cern.todo.model.NewCategoryDto;
 import ch.cern.todo.repository.CategoryRepository;
 import jakarta.validation.Valid;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.NoSuchElementException;
+
+import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
+
+// Categories are read on every task write but only change through admin calls to this
+// service, so they are cached by ID (see spring.cache.* in application.properties).
 @Service
 public class CategoryService {
+    public static final String CATEGORY_CACHE = "categories";
+
     private final CategoryRepository categoryRepository;
+    private final ServiceMetrics metrics;
 
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, ServiceMetrics metrics) {
         this.categoryRepository = categoryRepository;
+        this.metrics = metrics;
     }
 
+    @CachePut(cacheNames = CATEGORY_CACHE, key = "#result.id")
     public Category saveCategory(Category category) {
         return categoryRepository.save(category);
     }
 
+    @Cacheable(CATEGORY_CACHE)
     public Category getCategory(Long id) {
-        return categoryRepository.findById(id).orElseThrow();
+        return categoryRepository.findById(id).orElseThrow(() -> notFound(id));
     }
 
-    public Category updateCategory(Long id, @Valid NewCategoryDto updatedCategory) {
+    // requiredVersion comes from If-Match, null for an unconditional update
+    @CacheEvict(cacheNames = CATEGORY_CACHE, key = "#id")
+    public Category updateCategory(Long id, @Valid NewCategoryDto updatedCategory, Long requiredVersion) {
         return categoryRepository.findById(id).map(
                 existingCategory -> {
+                    if (requiredVersion != null && !requiredVersion.equals(existingCategory.getVersion())) {
+                        throw new ResponseStatusException(PRECONDITION_FAILED, "Category " + id + " has been modified");
+                    }
                     existingCategory.setName(updatedCategory.name());
                     existingCategory.setDescription(updatedCategory.description());
                     return categoryRepository.save(existingCategory);
                 }
-        ).orElseThrow();
+        ).orElseThrow(() -> notFound(id));
     }
 
+    @CacheEvict(cacheNames = CATEGORY_CACHE, key = "#id")
     public void deleteCategory(Long id) {
         categoryRepository.deleteById(id);
     }
+
+    private NoSuchElementException notFound(Long id) {
+        metrics.notFound("category");
+        return new NoSuchElementException("Category " + id + " not found");
+    }
 }
@@ -0,0 +1,30 @@
+package ch.cern.todo.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Change counters for task IDs, striped so that they take constant memory. A cache reads the stamp of a task
+// before loading it from the database, and only stores what it loaded if the stamp has not moved since:
+// otherwise a change may have been committed (and already applied or evicted) while the load was running,
+// and the loaded copy could be older. Sharing a stripe only costs an occasional missed put.
+final class ChangeStamps {
+    private static final int STRIPES = 1024;
+
+    private final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+
+    long stamp(long id) {
+        return stamps.get(stripe(id));
+    }
+
+    // Must be called before the cache is updated for the change
+    void changed(long id) {
+        stamps.incrementAndGet(stripe(id));
+    }
+
+    boolean unchangedSince(long id, long stamp) {
+        return stamps.get(stripe(id)) == stamp;
+    }
+
+    private static int stripe(long id) {
+        return (int) (id & (STRIPES - 1));
+    }
+}
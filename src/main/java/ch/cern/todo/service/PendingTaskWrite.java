@@ -0,0 +1,21 @@
+package ch.cern.todo.service;
+
+import java.time.LocalDateTime;
+
+// A task write acknowledged by the write-behind mode but possibly not in the database yet,
+// as stored in the write log. sequence orders the writes, also across restarts.
+record PendingTaskWrite(
+    long sequence,
+    Type type,
+    Long taskId,
+    String name,
+    String description,
+    LocalDateTime deadline,
+    Long categoryId,
+    String author
+) {
+    enum Type {
+        CREATE,
+        UPDATE
+    }
+}
@@ -0,0 +1,101 @@
+package ch.cern.todo.service;
+
+import ch.cern.todo.model.TaskSearchCriteria;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+// Meters of the service layer, published under /actuator/metrics and /actuator/prometheus.
+// Every call to a service is timed by timeCall, which TodoApplication wraps around the @Service beans.
+// Search is timed per phase and per filter combination, so that a slow combination (e.g. a missing index)
+// stands out. The query phase includes building the DTOs, which Hibernate constructs from the rows.
+@Component
+public class ServiceMetrics {
+    public static final String SPECIFICATION = "specification";
+    public static final String QUERY = "query";
+    // Query and writing out the results, which the streaming search interleaves
+    public static final String STREAM = "stream";
+
+    private final MeterRegistry meterRegistry;
+
+    public ServiceMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Includes the transaction and cache handling of the call, and is tagged with the exception it threw
+    public Object timeCall(MethodInvocation invocation) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("todo.service")
+                .description("Time spent in service calls")
+                .tags(
+                    "service", ClassUtils.getUserClass(invocation.getMethod().getDeclaringClass()).getSimpleName(),
+                    "operation", invocation.getMethod().getName(),
+                    "exception", exception
+                )
+                .register(meterRegistry));
+        }
+    }
+
+    public <T> T timeSearch(String operation, String phase, TaskSearchCriteria criteria, Supplier<T> call) {
+        return Timer.builder("todo.tasks.search")
+            .description("Time spent in task searches, by phase")
+            .tags("operation", operation, "phase", phase, "filters", filters(criteria))
+            .register(meterRegistry)
+            .record(call);
+    }
+
+    public void recordResults(String operation, int size) {
+        DistributionSummary.builder("todo.tasks.search.results")
+            .description("Number of tasks returned by a search")
+            .baseUnit("tasks")
+            .tag("operation", operation)
+            .register(meterRegistry)
+            .record(size);
+    }
+
+    // check is what denied the request, e.g. the author of a task or an author filter
+    public void accessDenied(String check) {
+        Counter.builder("todo.access.denied")
+            .description("Requests rejected by authorization checks of the services")
+            .tag("check", check)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    public void notFound(String entity) {
+        Counter.builder("todo.not.found")
+            .description("Lookups of missing tasks or categories")
+            .tag("entity", entity)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    // Names of the filters in use, in declaration order, e.g. "author,deadlineFrom"
+    static String filters(TaskSearchCriteria criteria) {
+        StringJoiner filters = new StringJoiner(",");
+        if (criteria.author() != null) filters.add("author");
+        if (criteria.name() != null) filters.add("name");
+        if (criteria.description() != null) filters.add("description");
+        if (criteria.deadline() != null) filters.add("deadline");
+        if (criteria.deadlineFrom() != null) filters.add("deadlineFrom");
+        if (criteria.deadlineTo() != null) filters.add("deadlineTo");
+        if (criteria.dueToday()) filters.add("dueToday");
+        if (criteria.overdue()) filters.add("overdue");
+        if (criteria.category() != null) filters.add("category");
+        return filters.length() == 0 ? "none" : filters.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package ch.cern.todo.service;
+
+import ch.cern.todo.model.TaskModification;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+// Sync tokens carry the position (modification sequence number and task ID) the client is up to date with,
+// but like cursors they are opaque to clients. Tokens with only a sequence number cover all of its tasks.
+final class SyncToken {
+    private static final String PREFIX = "sync:";
+
+    private SyncToken() {}
+
+    static String encode(TaskModification position) {
+        String value = position.taskId() == Long.MAX_VALUE
+            ? Long.toString(position.modificationSeq())
+            : position.modificationSeq() + ":" + position.taskId();
+        return Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString((PREFIX + value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static TaskModification decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Unknown sync token format");
+            }
+            String[] parts = decoded.substring(PREFIX.length()).split(":", -1);
+            if (parts.length > 2) {
+                throw new IllegalArgumentException("Unknown sync token format");
+            }
+            long modificationSeq = Long.parseLong(parts[0]);
+            return parts.length == 1
+                ? TaskModification.allOf(modificationSeq)
+                : new TaskModification(modificationSeq, Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, "Invalid sync token " + token, e);
+        }
+    }
+}
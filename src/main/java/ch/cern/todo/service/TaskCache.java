@@ -0,0 +1,48 @@
+package ch.cern.todo.service;
+
+import ch.cern.todo.model.PersistedTaskDto;
+import ch.cern.todo.model.TaskChangedEvent;
+import ch.cern.todo.model.VersionedTask;
+import ch.cern.todo.repository.TaskRepository;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+
+// Recently read and written tasks, so that repeated reads of the same task do not hit the database.
+// Bounded by memory (todo.task-cache.max-memory) and kept up to date from committed TaskChangedEvents,
+// which every task write publishes, including the ones that bypass Hibernate.
+// Entries are immutable snapshots, so access checks run against the cached author.
+@Component
+public class TaskCache {
+    public static final String TASK_CACHE = "tasks";
+
+    private final VersionedTaskCache<VersionedTask> tasks;
+    private final TaskRepository taskRepository;
+
+    public TaskCache(CacheManager cacheManager, TaskRepository taskRepository) {
+        this.tasks = new VersionedTaskCache<>(cacheManager.getCache(TASK_CACHE), VersionedTask.class, VersionedTask::version);
+        this.taskRepository = taskRepository;
+    }
+
+    public Optional<VersionedTask> get(Long id) {
+        return tasks.get(id, key -> taskRepository.findById(key)
+            .map(task -> new VersionedTask(new PersistedTaskDto(task), task.getVersion())));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        tasks.apply(event, changed -> new VersionedTask(
+            new PersistedTaskDto(
+                changed.id(),
+                changed.name(),
+                changed.description(),
+                changed.deadline(),
+                changed.categoryId(),
+                changed.author()
+            ),
+            changed.version()
+        ));
+    }
+}
@@ -0,0 +1,218 @@
+package ch.cern.todo.service;
+
+import ch.cern.todo.model.PersistedTaskDto;
+import ch.cern.todo.model.TaskChangedEvent;
+import ch.cern.todo.security.Permissions;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+// Pushes committed task changes to SSE subscribers that may see the task (its author and administrators).
+// Publishing only enqueues: each subscriber has a bounded buffer that is drained on the feed's own
+// send threads while it holds events, so idle subscribers hold no thread and a slow one cannot hold up
+// the others, nor the request threads and the shared task executor. Subscribers that fall a full buffer
+// behind, or whose send is stuck for longer than the send timeout, are disconnected and have to resubscribe.
+// Idle subscribers get a heartbeat comment, so that dead connections are noticed before the subscription ends.
+@Component
+public class TaskChangeFeed {
+    private static final Logger log = LoggerFactory.getLogger(TaskChangeFeed.class);
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    private final Permissions permissions;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor;
+    private final int bufferSize;
+    private final Duration timeout;
+    private final Duration sendTimeout;
+    private final Map<String, Set<Subscriber>> subscribersByAuthor = new ConcurrentHashMap<>();
+    private final Set<Subscriber> adminSubscribers = ConcurrentHashMap.newKeySet();
+
+    public TaskChangeFeed(
+        Permissions permissions,
+        ObjectMapper objectMapper,
+        @Value("${todo.changes.send-threads}") int sendThreads,
+        @Value("${todo.changes.buffer-size}") int bufferSize,
+        @Value("${todo.changes.timeout}") Duration timeout,
+        @Value("${todo.changes.send-timeout}") Duration sendTimeout
+    ) {
+        this.permissions = permissions;
+        this.objectMapper = objectMapper;
+        this.executor = Executors.newFixedThreadPool(sendThreads, Thread.ofPlatform().name("task-changes-", 0).daemon().factory());
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.sendTimeout = sendTimeout;
+    }
+
+    public SseEmitter subscribe(UserDetails userDetails) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, permissions.isAdmin(userDetails) ? null : userDetails.getUsername());
+        if (subscriber.author == null) {
+            adminSubscribers.add(subscriber);
+        } else {
+            subscribersByAuthor.compute(subscriber.author, (author, subscribers) -> {
+                Set<Subscriber> result = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+                result.add(subscriber);
+                return result;
+            });
+        }
+
+        emitter.onCompletion(subscriber::unsubscribe);
+        emitter.onTimeout(subscriber::unsubscribe);
+        emitter.onError(e -> subscriber.unsubscribe());
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        Set<Subscriber> authorSubscribers = subscribersByAuthor.get(event.author());
+        if (adminSubscribers.isEmpty() && authorSubscribers == null) {
+            return;
+        }
+
+        // Serialized once, whatever the number of subscribers
+        Set<DataWithMediaType> message = SseEmitter.event()
+            .name(event.type().name().toLowerCase())
+            .id(String.valueOf(event.id()))
+            .data(toJson(event))
+            .build();
+        adminSubscribers.forEach(subscriber -> subscriber.offer(message));
+        if (authorSubscribers != null) {
+            authorSubscribers.forEach(subscriber -> subscriber.offer(message));
+        }
+    }
+
+    // Also drops the subscribers whose send has been stuck past the send timeout. Their send thread is only
+    // released once the container's write timeout fails the write, but they get no more events meanwhile.
+    @Scheduled(fixedDelayString = "${todo.changes.heartbeat-interval}", initialDelayString = "${todo.changes.heartbeat-interval}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        subscribers().forEach(subscriber -> {
+            long sendingSince = subscriber.sendingSince;
+            if (sendingSince != 0 && now - sendingSince > sendTimeout.toNanos()) {
+                log.warn("Disconnecting a change feed subscriber whose send has been blocked for more than {}", sendTimeout);
+                subscriber.disconnect();
+            } else if (subscriber.buffer.isEmpty()) {
+                subscriber.offer(HEARTBEAT);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void completeAll() {
+        subscribers().forEach(subscriber -> subscriber.emitter.complete());
+        executor.shutdownNow();
+    }
+
+    private Stream<Subscriber> subscribers() {
+        return Stream.concat(adminSubscribers.stream(), subscribersByAuthor.values().stream().flatMap(Set::stream));
+    }
+
+    private String toJson(TaskChangedEvent event) {
+        try {
+            return objectMapper.writeValueAsString(new PersistedTaskDto(
+                event.id(),
+                event.name(),
+                event.description(),
+                event.deadline(),
+                event.categoryId(),
+                event.author()
+            ));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        // null for administrators, who receive every change
+        private final String author;
+        private final BlockingQueue<Set<DataWithMediaType>> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // System.nanoTime() when the send in progress started, 0 between sends
+        private volatile long sendingSince;
+
+        private Subscriber(SseEmitter emitter, String author) {
+            this.emitter = emitter;
+            this.author = author;
+        }
+
+        private void offer(Set<DataWithMediaType> message) {
+            if (!buffer.offer(message)) {
+                disconnect();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<DataWithMediaType> message;
+                while ((message = buffer.poll()) != null) {
+                    sendingSince = System.nanoTime();
+                    emitter.send(message);
+                    sendingSince = 0;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away, the container reports it through onError
+                close();
+            } finally {
+                sendingSince = 0;
+                draining.set(false);
+            }
+            // Picks up messages offered after the last poll but before the flag was cleared
+            if (!buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void disconnect() {
+            close();
+            // On a send thread, because completing waits for the send in progress
+            executor.execute(emitter::complete);
+        }
+
+        private void close() {
+            unsubscribe();
+            buffer.clear();
+        }
+
+        private void unsubscribe() {
+            if (author == null) {
+                adminSubscribers.remove(this);
+            } else {
+                subscribersByAuthor.computeIfPresent(author, (key, subscribers) -> {
+                    subscribers.remove(this);
+                    return subscribers.isEmpty() ? null : subscribers;
+                });
+            }
+        }
+    }
+}
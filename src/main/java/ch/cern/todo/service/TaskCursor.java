@@ -0,0 +1,34 @@
+package ch.cern.todo.service;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+// Cursors only carry the last task ID seen, but clients must treat them as opaque
+// so that the encoding can change without breaking them.
+final class TaskCursor {
+    private static final String PREFIX = "task:";
+
+    private TaskCursor() {}
+
+    static String encode(Long lastTaskId) {
+        return Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString((PREFIX + lastTaskId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Long decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Unknown cursor format");
+            }
+            return Long.parseLong(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, "Invalid cursor " + cursor, e);
+        }
+    }
+}
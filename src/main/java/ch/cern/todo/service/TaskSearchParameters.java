@@ -0,0 +1,60 @@
+package ch.cern.todo.service;
+
+import ch.cern.todo.model.TaskField;
+import ch.cern.todo.model.TaskOrder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+// Parses the sort and fields parameters of /tasks/search, e.g. sort=deadline,-name and fields=id,name,deadline
+final class TaskSearchParameters {
+    private TaskSearchParameters() {}
+
+    // A leading - sorts in descending order. Descriptions are not indexed, so they cannot be sorted on.
+    static List<TaskOrder> parseSort(String sort) {
+        List<TaskOrder> order = new ArrayList<>();
+        for (String name : split(sort)) {
+            boolean descending = name.startsWith("-");
+            TaskField field = field(descending ? name.substring(1) : name, "sort");
+            if (field == TaskField.DESCRIPTION) {
+                throw new ResponseStatusException(BAD_REQUEST, "Cannot sort by description");
+            }
+            order.add(new TaskOrder(field, descending));
+        }
+        return order;
+    }
+
+    static List<TaskField> parseFields(String fields) {
+        Set<TaskField> parsed = new LinkedHashSet<>();
+        for (String name : split(fields)) {
+            parsed.add(field(name, "field"));
+        }
+        return List.copyOf(parsed);
+    }
+
+    private static List<String> split(String parameter) {
+        List<String> names = Arrays.stream(parameter.split(","))
+            .map(String::trim)
+            .filter(name -> !name.isEmpty())
+            .toList();
+        if (names.isEmpty()) {
+            throw new ResponseStatusException(BAD_REQUEST, "Expected a comma-separated list of fields");
+        }
+        return names;
+    }
+
+    private static TaskField field(String name, String kind) {
+        for (TaskField field : TaskField.values()) {
+            if (field.jsonName().equals(name)) {
+                return field;
+            }
+        }
+        throw new ResponseStatusException(BAD_REQUEST, "Unknown " + kind + " " + name);
+    }
+}
@@ -1,41 +1,114 @@
 package ch.cern.todo.service;
 
+import ch.cern.todo.model.BatchItemResult;
 import ch.cern.todo.model.Category;
 import ch.cern.todo.model.NewTaskDto;
 import ch.cern.todo.model.PersistedTaskDto;
 import ch.cern.todo.model.Task;
-import ch.cern.todo.repository.CategoryRepository;
+import ch.cern.todo.model.TaskField;
+import ch.cern.todo.model.TaskModification;
+import ch.cern.todo.model.TaskOrder;
+import ch.cern.todo.model.TaskPage;
+import ch.cern.todo.model.TaskSearchCriteria;
+import ch.cern.todo.model.TaskStats;
+import ch.cern.todo.model.TaskSync;
+import ch.cern.todo.model.TaskUpdateDto;
+import ch.cern.todo.model.TaskVersion;
+import ch.cern.todo.model.VersionedTask;
+import ch.cern.todo.repository.ModificationSequence;
+import ch.cern.todo.repository.TaskCounters;
+import ch.cern.todo.repository.TaskKeyIndex;
 import ch.cern.todo.repository.TaskRepository;
+import ch.cern.todo.repository.TaskTextIndex;
+import ch.cern.todo.repository.TaskTombstones;
+import ch.cern.todo.security.Permissions;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Optional;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static ch.cern.todo.repository.TaskSpecification.*;
+import static ch.cern.todo.service.ServiceMetrics.*;
 import static org.springframework.data.jpa.domain.Specification.where;
-import static org.springframework.http.HttpStatus.FORBIDDEN;
+import static org.springframework.http.HttpStatus.*;
 
 @Service
 public class TaskService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 1000;
+    // Must match spring.jpa.properties.hibernate.jdbc.batch_size
+    private static final int JDBC_BATCH_SIZE = 50;
+
     private final TaskRepository taskRepository;
-    private final CategoryRepository categoryRepository;
+    private final CategoryService categoryService;
+    private final TaskTextIndex taskTextIndex;
+    private final TaskKeyIndex taskKeyIndex;
+    private final TaskCounters taskCounters;
+    private final TaskVersions taskVersions;
+    private final TaskCache taskCache;
+    private final TaskTombstones taskTombstones;
+    private final ModificationSequence modificationSequence;
+    private final Permissions permissions;
+    private final ServiceMetrics metrics;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final Clock clock;
 
-    public TaskService(TaskRepository taskRepository, CategoryRepository categoryRepository) {
+    public TaskService(
+        TaskRepository taskRepository,
+        CategoryService categoryService,
+        TaskTextIndex taskTextIndex,
+        TaskKeyIndex taskKeyIndex,
+        TaskCounters taskCounters,
+        TaskVersions taskVersions,
+        TaskCache taskCache,
+        TaskTombstones taskTombstones,
+        ModificationSequence modificationSequence,
+        Permissions permissions,
+        ServiceMetrics metrics,
+        EntityManager entityManager,
+        Validator validator,
+        Clock clock
+    ) {
         this.taskRepository = taskRepository;
-        this.categoryRepository = categoryRepository;
+        this.categoryService = categoryService;
+        this.taskTextIndex = taskTextIndex;
+        this.taskKeyIndex = taskKeyIndex;
+        this.taskCounters = taskCounters;
+        this.taskVersions = taskVersions;
+        this.taskCache = taskCache;
+        this.taskTombstones = taskTombstones;
+        this.modificationSequence = modificationSequence;
+        this.permissions = permissions;
+        this.metrics = metrics;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.clock = clock;
     }
 
+    @Transactional
     public Task saveTask(@Valid NewTaskDto newTaskDto, String username) {
         try {
-            Category category = categoryRepository.findById(newTaskDto.categoryId()).orElseThrow();
-            return taskRepository.save(new Task(newTaskDto, category, username));
+            Category category = categoryService.getCategory(newTaskDto.categoryId());
+            Task saved = taskRepository.save(new Task(newTaskDto, category, username));
+            taskCounters.apply(Map.of(TaskCounters.Key.of(saved), 1L));
+            return saved;
         } catch (NoSuchElementException e) {
             throw new NoSuchElementException("Category " + newTaskDto.categoryId() + " not found");
         }
@@ -45,107 +118,550 @@ public class TaskService {
         try {
             return taskRepository.findById(id).orElseThrow();
         } catch (NoSuchElementException e) {
+            metrics.notFound("task");
             throw new NoSuchElementException("Task " + id + " not found");
         }
     }
 
-    public Task getTask(Long id,  UserDetails userDetails) {
-        Task found = getTask(id);
-        checkTaskRights(found, userDetails);
+    // Served from the task cache, the access check runs against the cached copy
+    public VersionedTask getTask(Long id, UserDetails userDetails) {
+        VersionedTask found = taskCache.get(id).orElseThrow(() -> {
+            metrics.notFound("task");
+            return new NoSuchElementException("Task " + id + " not found");
+        });
+        checkTaskRights(id, found.task().author(), userDetails);
         return found;
     }
 
-    public PersistedTaskDto updateTask(Task taskToUpdate, @Valid NewTaskDto newTaskDto) {
+    // Answers conditional requests from the version cache, with the same access rules as getTask
+    public TaskVersion getTaskVersion(Long id, UserDetails userDetails) {
+        TaskVersion version = taskVersions.get(id).orElseThrow(() -> {
+            metrics.notFound("task");
+            return new NoSuchElementException("Task " + id + " not found");
+        });
+        checkTaskRights(id, version.author(), userDetails);
+        return version;
+    }
+
+    // A conditional write without loading the entity, see TaskConditionalWrites.
+    // requiredVersion comes from If-Match, null for an unconditional update.
+    @Transactional
+    public Task updateTask(Long id, @Valid NewTaskDto newTaskDto, UserDetails userDetails, Long requiredVersion) {
+        Task update = new Task();
+        update.setId(id);
+        update.setName(newTaskDto.name());
+        update.setDescription(newTaskDto.description());
+        update.setDeadline(newTaskDto.deadline());
         try {
-            taskToUpdate.setCategory(categoryRepository.findById(newTaskDto.categoryId()).orElseThrow());
+            update.setCategory(categoryService.getCategory(newTaskDto.categoryId()));
         } catch (NoSuchElementException e) {
             throw new NoSuchElementException("Category " + newTaskDto.categoryId() + " not found");
         }
 
-        taskToUpdate.setName(newTaskDto.name());
-        taskToUpdate.setDescription(newTaskDto.description());
-        taskToUpdate.setDeadline(newTaskDto.deadline());
+        Task before = taskRepository.updateIfMatches(update, restrictedAuthor(userDetails), requiredVersion)
+            .orElseThrow(() -> rejectedWrite(id, userDetails, requiredVersion));
+        Map<TaskCounters.Key, Long> deltas = new HashMap<>();
+        moveCounter(deltas, TaskCounters.Key.of(before), TaskCounters.Key.of(update));
+        taskCounters.apply(deltas);
+        return update;
+    }
 
-        return new PersistedTaskDto(taskRepository.save(taskToUpdate));
+    @Transactional
+    public void deleteTask(Long id) {
+        taskRepository.deleteIfMatches(id, null).ifPresent(this::countDeleted);
     }
 
-    public PersistedTaskDto updateTask(Long id, @Valid NewTaskDto newTaskDto, UserDetails userDetails) {
-        Task found = getTask(id);
-        checkTaskRights(found, userDetails);
+    // A conditional delete, see TaskConditionalWrites. Deleting a missing task succeeds.
+    @Transactional
+    public void deleteTask(Long id, UserDetails userDetails) {
+        Optional<Task> deleted = taskRepository.deleteIfMatches(id, restrictedAuthor(userDetails));
+        if (deleted.isPresent()) {
+            countDeleted(deleted.get());
+            return;
+        }
 
-        return updateTask(found, newTaskDto);
+        // The only other outcome worth reporting, checked on this path only
+        Optional<TaskVersion> current = taskRepository.findVersionById(id);
+        if (current.isPresent() && !permissions.canAccessTask(current.get().author(), userDetails)) {
+            metrics.accessDenied("task");
+            throw new ResponseStatusException(FORBIDDEN, "You are not authorized to interact with task " + id);
+        }
     }
 
-    public void deleteTask(Long id) {
-        taskRepository.deleteById(id);
+    private void countDeleted(Task task) {
+        taskCounters.apply(Map.of(TaskCounters.Key.of(task), -1L));
     }
 
-    public void deleteTask(Long id, UserDetails userDetails) {
-        Optional<Task> optionalTask = taskRepository.findById(id);
-        if (optionalTask.isEmpty()) return;
-        checkTaskRights(optionalTask.orElseThrow(), userDetails);
-
-        deleteTask(id);
+    // Author that conditional writes are restricted to, null for administrators
+    private String restrictedAuthor(UserDetails userDetails) {
+        return permissions.isAdmin(userDetails) ? null : userDetails.getUsername();
     }
 
-    public List<PersistedTaskDto> search(
-        String author,
-        String name,
-        String description,
-        LocalDateTime deadline,
-        Category category
-    ) {
-        Specification<Task> spec = where(null);
-        if (author != null) {
-            spec = spec.and(authorEqual(author));
+    // A conditional write matched no row, one more read tells why
+    private RuntimeException rejectedWrite(Long id, UserDetails userDetails, Long requiredVersion) {
+        Optional<TaskVersion> current = taskRepository.findVersionById(id);
+        if (current.isEmpty()) {
+            metrics.notFound("task");
+            return new NoSuchElementException("Task " + id + " not found");
         }
-        if (name != null) {
-            spec = spec.and(nameLike(name));
+        if (!permissions.canAccessTask(current.get().author(), userDetails)) {
+            metrics.accessDenied("task");
+            return new ResponseStatusException(FORBIDDEN, "You are not authorized to interact with task " + id);
         }
-        if (description != null) {
-            spec = spec.and(descriptionLike(description));
+        if (requiredVersion != null) {
+            return new ResponseStatusException(PRECONDITION_FAILED, "Task " + id + " has been modified");
         }
-        if (deadline != null) {
-            spec = spec.and(deadlineEqual(deadline));
+        // Inserted between the two statements, e.g. by the write-behind mode
+        return new ResponseStatusException(CONFLICT, "Task " + id + " has been modified");
+    }
+
+    @Transactional
+    public List<BatchItemResult> saveTasks(List<NewTaskDto> newTaskDtos, String username) {
+        checkBatchSize(newTaskDtos);
+        Map<Long, Category> categories = resolveCategories(newTaskDtos.stream()
+            .filter(Objects::nonNull)
+            .map(NewTaskDto::categoryId));
+
+        List<BatchItemResult> results = new ArrayList<>(newTaskDtos.size());
+        Map<TaskCounters.Key, Long> deltas = new HashMap<>();
+        for (int i = 0; i < newTaskDtos.size(); i++) {
+            NewTaskDto newTaskDto = newTaskDtos.get(i);
+            String violations = validate(newTaskDto);
+            if (violations != null) {
+                results.add(BatchItemResult.failed(i, null, BAD_REQUEST, violations));
+                continue;
+            }
+            Category category = categories.get(newTaskDto.categoryId());
+            if (category == null) {
+                results.add(BatchItemResult.failed(i, null, NOT_FOUND, "Category " + newTaskDto.categoryId() + " not found"));
+                continue;
+            }
+
+            Task saved = taskRepository.save(new Task(newTaskDto, category, username));
+            deltas.merge(TaskCounters.Key.of(saved), 1L, Long::sum);
+            results.add(BatchItemResult.succeeded(i, saved.getId(), CREATED));
+            if ((i + 1) % JDBC_BATCH_SIZE == 0) {
+                // Send the pending inserts as one JDBC batch and keep the persistence context small
+                entityManager.flush();
+                entityManager.clear();
+            }
         }
-        if (category != null) {
-            spec = spec.and(categoryEqual(category));
+        // One counter update per distinct key rather than per task
+        taskCounters.apply(deltas);
+        return results;
+    }
+
+    @Transactional
+    public List<BatchItemResult> updateTasks(List<TaskUpdateDto> updates, UserDetails userDetails) {
+        checkBatchSize(updates);
+        List<TaskUpdateDto> nonNullUpdates = updates.stream().filter(Objects::nonNull).toList();
+        Map<Long, Category> categories = resolveCategories(nonNullUpdates.stream()
+            .map(TaskUpdateDto::task)
+            .filter(Objects::nonNull)
+            .map(NewTaskDto::categoryId));
+        Map<Long, Task> tasks = findAllById(nonNullUpdates.stream().map(TaskUpdateDto::id));
+
+        List<BatchItemResult> results = new ArrayList<>(updates.size());
+        Map<TaskCounters.Key, Long> deltas = new HashMap<>();
+        for (int i = 0; i < updates.size(); i++) {
+            TaskUpdateDto update = updates.get(i);
+            String violations = validate(update);
+            if (violations != null) {
+                results.add(BatchItemResult.failed(i, update == null ? null : update.id(), BAD_REQUEST, violations));
+                continue;
+            }
+            Task task = tasks.get(update.id());
+            if (task == null) {
+                metrics.notFound("task");
+                results.add(BatchItemResult.failed(i, update.id(), NOT_FOUND, "Task " + update.id() + " not found"));
+                continue;
+            }
+            if (!permissions.canAccessTask(task.getAuthor(), userDetails)) {
+                metrics.accessDenied("task");
+                results.add(BatchItemResult.failed(i, update.id(), FORBIDDEN, "You are not authorized to interact with task " + task.getId()));
+                continue;
+            }
+            Category category = categories.get(update.task().categoryId());
+            if (category == null) {
+                results.add(BatchItemResult.failed(i, update.id(), NOT_FOUND, "Category " + update.task().categoryId() + " not found"));
+                continue;
+            }
+
+            // Managed entities are flushed together at commit, as batched UPDATEs
+            TaskCounters.Key before = TaskCounters.Key.of(task);
+            task.setName(update.task().name());
+            task.setDescription(update.task().description());
+            task.setDeadline(update.task().deadline());
+            task.setCategory(category);
+            moveCounter(deltas, before, TaskCounters.Key.of(task));
+            results.add(BatchItemResult.succeeded(i, task.getId(), OK));
         }
+        taskCounters.apply(deltas);
+        return results;
+    }
+
+    @Transactional
+    public List<BatchItemResult> deleteTasks(List<Long> ids, UserDetails userDetails) {
+        checkBatchSize(ids);
+        Map<Long, Task> tasks = findAllById(ids.stream());
+
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        Map<TaskCounters.Key, Long> deltas = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (id == null) {
+                results.add(BatchItemResult.failed(i, null, BAD_REQUEST, "Task ID must not be null"));
+                continue;
+            }
+            Task task = tasks.get(id);
+            if (task == null) {
+                metrics.notFound("task");
+                results.add(BatchItemResult.failed(i, id, NOT_FOUND, "Task " + id + " not found"));
+                continue;
+            }
+            if (!permissions.canAccessTask(task.getAuthor(), userDetails)) {
+                metrics.accessDenied("task");
+                results.add(BatchItemResult.failed(i, id, FORBIDDEN, "You are not authorized to interact with task " + id));
+                continue;
+            }
 
-        List<PersistedTaskDto> output = new ArrayList<>();
-        taskRepository.findAll(spec).forEach(task -> output.add(new PersistedTaskDto(task)));
-        return output;
+            // A repeated ID is reported as not found, and only counted once
+            tasks.remove(id);
+            taskRepository.delete(task);
+            deltas.merge(TaskCounters.Key.of(task), -1L, Long::sum);
+            results.add(BatchItemResult.succeeded(i, id, OK));
+        }
+        taskCounters.apply(deltas);
+        return results;
+    }
+
+    public List<PersistedTaskDto> search(TaskSearchCriteria criteria) {
+        Specification<Task> spec = metrics.timeSearch("search", SPECIFICATION, criteria, () -> toSpecification(criteria));
+        List<PersistedTaskDto> found = metrics.timeSearch("search", QUERY, criteria, () -> taskRepository.findDtos(spec));
+        metrics.recordResults("search", found.size());
+        return found;
+    }
+
+    // sort is a comma-separated list of fields, e.g. deadline,-name, with - for descending order.
+    // Only the first limit tasks in that order are returned.
+    public List<PersistedTaskDto> search(TaskSearchCriteria criteria, String sort, int limit, UserDetails userDetails) {
+        checkLimit(limit);
+        List<TaskOrder> order = TaskSearchParameters.parseSort(sort);
+        TaskSearchCriteria restricted = restrictToUser(criteria, userDetails);
+        Specification<Task> spec = metrics.timeSearch("search", SPECIFICATION, restricted, () -> toSpecification(restricted));
+        List<PersistedTaskDto> found = metrics.timeSearch("search", QUERY, restricted, () -> taskRepository.findDtos(spec, order, limit));
+        metrics.recordResults("search", found.size());
+        return found;
     }
 
-    public List<PersistedTaskDto> search(
-        String author,
-        String name,
-        String description,
-        LocalDateTime deadline,
-        Category category,
+    // Only the requested fields are selected and returned, sort may be null to order by id
+    public List<Map<String, Object>> searchFields(
+        TaskSearchCriteria criteria,
+        String sort,
+        String fields,
+        int limit,
         UserDetails userDetails
     ) {
-        if (userIsAdmin(userDetails)) {
-            return search(author, name, description, deadline, category);
+        checkLimit(limit);
+        List<TaskOrder> order = sort == null ? List.of() : TaskSearchParameters.parseSort(sort);
+        List<TaskField> selected = TaskSearchParameters.parseFields(fields);
+        TaskSearchCriteria restricted = restrictToUser(criteria, userDetails);
+        Specification<Task> spec = metrics.timeSearch("fields", SPECIFICATION, restricted, () -> toSpecification(restricted));
+        List<Map<String, Object>> found = metrics.timeSearch(
+            "fields",
+            QUERY,
+            restricted,
+            () -> taskRepository.findFields(spec, selected, order, limit)
+        );
+        metrics.recordResults("fields", found.size());
+        return found;
+    }
+
+    public TaskPage searchPage(TaskSearchCriteria criteria, String after, int limit, UserDetails userDetails) {
+        checkLimit(limit);
+
+        TaskSearchCriteria restricted = restrictToUser(criteria, userDetails);
+        Specification<Task> filters = metrics.timeSearch("page", SPECIFICATION, restricted, () -> toSpecification(restricted));
+        Specification<Task> spec = after == null ? filters : filters.and(idGreaterThan(TaskCursor.decode(after)));
+
+        // Fetch one extra row to know whether there is a next page without issuing a count query
+        List<PersistedTaskDto> found = metrics.timeSearch(
+            "page",
+            QUERY,
+            restricted,
+            () -> taskRepository.findDtoPageOrderedById(spec, limit + 1)
+        );
+        List<PersistedTaskDto> output = found.size() > limit ? found.subList(0, limit) : found;
+        metrics.recordResults("page", output.size());
+
+        String next = found.size() > limit ? TaskCursor.encode(output.getLast().id()) : null;
+        return new TaskPage(output, next);
+    }
+
+    // The stream is only open for the duration of the call, so the consumer must
+    // write each task out (e.g. to the response) rather than keep references to them.
+    @Transactional(readOnly = true)
+    public void streamSearch(TaskSearchCriteria criteria, Consumer<PersistedTaskDto> consumer) {
+        Specification<Task> spec = metrics.timeSearch("stream", SPECIFICATION, criteria, () -> toSpecification(criteria));
+        // Projected rows are not managed, so the persistence context does not grow with the result set.
+        // Timed as a whole since rows are written out by the consumer while the query is still being read.
+        long count = metrics.timeSearch("stream", STREAM, criteria, () -> {
+            try (Stream<PersistedTaskDto> tasks = taskRepository.streamDtosOrderedById(spec)) {
+                return tasks.mapToLong(task -> {
+                    consumer.accept(task);
+                    return 1;
+                }).sum();
+            }
+        });
+        metrics.recordResults("stream", (int) count);
+    }
+
+    // Same filters and access rules as search, answered with aggregate queries instead of returning the tasks
+    @Transactional(readOnly = true)
+    public TaskStats stats(TaskSearchCriteria criteria, UserDetails userDetails) {
+        TaskSearchCriteria restricted = restrictToUser(criteria, userDetails);
+        Specification<Task> spec = metrics.timeSearch("stats", SPECIFICATION, restricted, () -> toSpecification(restricted));
+        return metrics.timeSearch("stats", QUERY, restricted, () -> stats(spec, userDetails));
+    }
+
+    private TaskStats stats(Specification<Task> spec, UserDetails userDetails) {
+        Map<Long, Long> byCategory = taskRepository.countByCategory(spec);
+        // Every task has a category, so the groups add up to the total
+        long total = byCategory.values().stream().mapToLong(Long::longValue).sum();
+        Map<String, Long> byAuthor = permissions.isAdmin(userDetails) ? taskRepository.countByAuthor(spec) : null;
+
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime startOfToday = now.toLocalDate().atStartOfDay();
+        LocalDateTime startOfWeek = startOfToday.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        List<Long> byDeadline = taskRepository.countMatching(spec, List.of(
+            deadlineBefore(now),
+            deadlineAtOrAfter(startOfToday).and(deadlineBefore(startOfToday.plusDays(1))),
+            deadlineAtOrAfter(startOfWeek).and(deadlineBefore(startOfWeek.plusWeeks(1)))
+        ));
+
+        return new TaskStats(
+            total,
+            byCategory,
+            byAuthor,
+            new TaskStats.DeadlineCounts(byDeadline.get(0), byDeadline.get(1), byDeadline.get(2))
+        );
+    }
+
+    // Tasks changed and deleted since the token, oldest change first. Without a token all tasks are returned.
+    public TaskSync sync(String since, int limit, UserDetails userDetails) {
+        checkLimit(limit);
+        TaskModification after = since == null ? null : SyncToken.decode(since);
+        TaskSync sync = changesSince(after, limit, userDetails);
+        // Checked after reading the tombstones, so that a prune that removed some of them is noticed
+        if (after != null && after.compareTo(TaskModification.allOf(taskTombstones.horizon())) < 0) {
+            TaskSync full = changesSince(null, limit, userDetails);
+            return new TaskSync(full.changed(), full.deleted(), full.token(), full.hasMore(), true);
+        }
+        return sync;
+    }
+
+    // A null position is a full sync
+    private TaskSync changesSince(TaskModification since, int limit, UserDetails userDetails) {
+        TaskModification after = since == null ? TaskModification.allOf(-1) : since;
+        // Taken before reading, so that the changes below it are all visible to the queries
+        TaskModification watermark = TaskModification.allOf(modificationSequence.lowWatermark() - 1);
+
+        String author = permissions.isAdmin(userDetails) ? null : userDetails.getUsername();
+        Specification<Task> spec = author == null ? where(null) : where(authorEqual(author));
+        SortedMap<TaskModification, Object> changes = new TreeMap<>(taskRepository.findDtosModifiedAfter(spec, after, limit + 1));
+        if (since != null) {
+            for (TaskModification deletion : taskTombstones.findDeletedAfter(author, after, limit + 1)) {
+                changes.put(deletion, deletion.taskId());
+            }
         }
 
-        if (author != null) {
+        List<PersistedTaskDto> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        TaskModification last = after;
+        for (Map.Entry<TaskModification, Object> change : changes.entrySet()) {
+            if (changed.size() + deleted.size() == limit) {
+                break;
+            }
+            if (change.getValue() instanceof PersistedTaskDto task) {
+                changed.add(task);
+            } else {
+                deleted.add((Long) change.getValue());
+            }
+            last = change.getKey();
+        }
+
+        // Changes at or above the watermark are sent again by the next sync,
+        // in case a lower number that is still in flight commits in the meantime
+        boolean truncated = changes.size() > limit;
+        TaskModification reached = truncated && last.compareTo(watermark) < 0 ? last : watermark;
+        TaskModification token = reached.compareTo(after) > 0 ? reached : after;
+        return new TaskSync(changed, deleted, SyncToken.encode(token), truncated && token.compareTo(after) > 0, false);
+    }
+
+    // Answered from the task counters, without touching the tasks table, so only the
+    // filters the counters are kept by (author, category, deadline day) are accepted
+    public long countTasks(TaskSearchCriteria criteria, LocalDate deadlineDay, UserDetails userDetails) {
+        if (criteria.name() != null || criteria.description() != null || criteria.deadline() != null
+            || criteria.deadlineFrom() != null || criteria.deadlineTo() != null || criteria.overdue()) {
+            throw new ResponseStatusException(BAD_REQUEST, "Tasks can only be counted by author, category, deadlineDay or dueToday");
+        }
+        if (criteria.dueToday()) {
+            if (deadlineDay != null) {
+                throw new ResponseStatusException(BAD_REQUEST, "deadlineDay and dueToday cannot be combined");
+            }
+            deadlineDay = LocalDate.now(clock);
+        }
+        TaskSearchCriteria restricted = restrictToUser(criteria, userDetails);
+        Category category = restricted.category();
+        return taskCounters.count(restricted.author(), category == null ? null : category.getId(), deadlineDay);
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(BAD_REQUEST, "Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    public TaskSearchCriteria restrictToUser(TaskSearchCriteria criteria, UserDetails userDetails) {
+        if (permissions.isAdmin(userDetails)) {
+            return criteria;
+        }
+
+        if (criteria.author() != null) {
+            metrics.accessDenied("author-filter");
             throw new ResponseStatusException(FORBIDDEN, "Only administrators may search by author");
         }
 
-        return search(userDetails.getUsername(), name, description, deadline, category);
+        return criteria.withAuthor(userDetails.getUsername());
     }
 
-    private void checkTaskRights(Task task, UserDetails userDetails) {
-        if (!userIsAdmin(userDetails) && !task.getAuthor().equals(userDetails.getUsername())) {
-            throw new ResponseStatusException(FORBIDDEN, "You are not authorized to interact with task " + task.getId());
+    private Specification<Task> toSpecification(TaskSearchCriteria criteria) {
+        // Taken before reading the indexes: every task written below it has been indexed
+        long indexedBelow = modificationSequence.lowWatermark();
+        Specification<Task> spec = where(null);
+        if (criteria.author() != null) {
+            spec = spec.and(authorEqual(criteria.author()));
+        }
+        if (criteria.name() != null) {
+            spec = spec.and(nameLike(criteria.name()));
+        }
+        if (criteria.description() != null) {
+            spec = spec.and(descriptionLike(criteria.description()));
         }
+        if (criteria.deadline() != null) {
+            spec = spec.and(deadlineEqual(criteria.deadline()));
+        }
+        spec = spec.and(deadlineRange(criteria));
+        if (criteria.category() != null) {
+            spec = spec.and(categoryEqual(criteria.category()));
+        }
+        // The predicates above are kept to weed out false positives and tasks changed since they were indexed,
+        // but only have to be evaluated on the candidate rows. The indexes never drop a task the predicates
+        // match, except the ones written since the watermark or outside the application, which are added.
+        Long categoryId = criteria.category() == null ? null : criteria.category().getId();
+        Optional<long[]> textCandidates = criteria.name() != null || criteria.description() != null
+            ? taskTextIndex.candidates(criteria.name(), criteria.description())
+            : Optional.empty();
+        Optional<long[]> candidates = textCandidates.isPresent()
+            ? Optional.of(taskKeyIndex.retainMatching(textCandidates.get(), criteria.author(), categoryId))
+            : taskKeyIndex.candidates(criteria.author(), categoryId);
+        if (candidates.isPresent()) {
+            List<Long> unindexed = taskRepository.findIdsModifiedFrom(indexedBelow, Limit.of(TaskKeyIndex.MAX_CANDIDATES + 1));
+            if (unindexed.size() <= TaskKeyIndex.MAX_CANDIDATES) {
+                List<Long> ids = new ArrayList<>(candidates.get().length + unindexed.size());
+                Arrays.stream(candidates.get()).forEach(ids::add);
+                ids.addAll(unindexed);
+                spec = spec.and(idIn(ids));
+            }
+        }
+        return spec;
     }
 
-    private boolean userIsAdmin(UserDetails userDetails) {
-        return userDetails
-            .getAuthorities()
-            .stream()
-            .anyMatch(authority -> authority.getAuthority().equals("ROLE_ADMIN"));
+    // Folds the explicit bounds and the shortcuts into a single [from, to) range,
+    // which the database answers with a range scan on one of the deadline indexes
+    private Specification<Task> deadlineRange(TaskSearchCriteria criteria) {
+        LocalDateTime from = criteria.deadlineFrom();
+        LocalDateTime to = criteria.deadlineTo();
+        LocalDateTime now = LocalDateTime.now(clock);
+        if (criteria.dueToday()) {
+            LocalDateTime startOfToday = now.toLocalDate().atStartOfDay();
+            from = latest(from, startOfToday);
+            to = earliest(to, startOfToday.plusDays(1));
+        }
+        if (criteria.overdue()) {
+            to = earliest(to, now);
+        }
+
+        Specification<Task> spec = where(null);
+        if (from != null) {
+            spec = spec.and(deadlineAtOrAfter(from));
+        }
+        if (to != null) {
+            spec = spec.and(deadlineBefore(to));
+        }
+        return spec;
+    }
+
+    private static void moveCounter(Map<TaskCounters.Key, Long> deltas, TaskCounters.Key before, TaskCounters.Key after) {
+        if (!before.equals(after)) {
+            deltas.merge(before, -1L, Long::sum);
+            deltas.merge(after, 1L, Long::sum);
+        }
+    }
+
+    private static LocalDateTime latest(LocalDateTime current, LocalDateTime bound) {
+        return current == null || bound.isAfter(current) ? bound : current;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime current, LocalDateTime bound) {
+        return current == null || bound.isBefore(current) ? bound : current;
+    }
+
+    private void checkBatchSize(List<?> batch) {
+        if (batch.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(BAD_REQUEST, "Batches are limited to " + MAX_BATCH_SIZE + " items");
+        }
+    }
+
+    // Loads each distinct category once, missing categories are left out of the map
+    private Map<Long, Category> resolveCategories(Stream<Long> categoryIds) {
+        Map<Long, Category> categories = new HashMap<>();
+        categoryIds.filter(Objects::nonNull).distinct().forEach(id -> {
+            try {
+                categories.put(id, categoryService.getCategory(id));
+            } catch (NoSuchElementException e) {
+                // Reported per item by the caller
+            }
+        });
+        return categories;
+    }
+
+    private Map<Long, Task> findAllById(Stream<Long> ids) {
+        Map<Long, Task> tasks = new HashMap<>();
+        taskRepository.findAllById(ids.filter(Objects::nonNull).distinct().toList())
+            .forEach(task -> tasks.put(task.getId(), task));
+        return tasks;
+    }
+
+    // Returns the constraint violations of a batch item as a message, or null if it is valid
+    private String validate(Object item) {
+        if (item == null) {
+            return "Item must not be null";
+        }
+        Set<ConstraintViolation<Object>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", "));
+    }
+
+    private void checkTaskRights(Long id, String author, UserDetails userDetails) {
+        if (!permissions.canAccessTask(author, userDetails)) {
+            metrics.accessDenied("task");
+            throw new ResponseStatusException(FORBIDDEN, "You are not authorized to interact with task " + id);
+        }
     }
 }
@@ -0,0 +1,34 @@
+package ch.cern.todo.service;
+
+import ch.cern.todo.model.TaskChangedEvent;
+import ch.cern.todo.model.TaskVersion;
+import ch.cern.todo.repository.TaskRepository;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+
+// Current version of each task, so that If-None-Match requests for unchanged tasks
+// are answered without loading the entity. Kept up to date from committed TaskChangedEvents.
+@Component
+public class TaskVersions {
+    public static final String TASK_VERSION_CACHE = "taskVersions";
+
+    private final VersionedTaskCache<TaskVersion> versions;
+    private final TaskRepository taskRepository;
+
+    public TaskVersions(CacheManager cacheManager, TaskRepository taskRepository) {
+        this.versions = new VersionedTaskCache<>(cacheManager.getCache(TASK_VERSION_CACHE), TaskVersion.class, TaskVersion::version);
+        this.taskRepository = taskRepository;
+    }
+
+    public Optional<TaskVersion> get(Long id) {
+        return versions.get(id, taskRepository::findVersionById);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        versions.apply(event, changed -> new TaskVersion(changed.version(), changed.author()));
+    }
+}
@@ -0,0 +1,388 @@
+package ch.cern.todo.service;
+
+import ch.cern.todo.model.Category;
+import ch.cern.todo.model.NewTaskDto;
+import ch.cern.todo.model.PersistedTaskDto;
+import ch.cern.todo.model.Task;
+import ch.cern.todo.repository.TaskCounters;
+import ch.cern.todo.repository.TaskRepository;
+import ch.cern.todo.security.Permissions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static ch.cern.todo.service.PendingTaskWrite.Type.CREATE;
+import static ch.cern.todo.service.PendingTaskWrite.Type.UPDATE;
+import static org.springframework.http.HttpStatus.FORBIDDEN;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+// Optional write mode for task creates and updates (todo.write-behind.enabled). Writes are acknowledged
+// once validated and fsynced to a local log, then a background thread applies whatever has queued up
+// in a single transaction. Until then, single task reads see the pending state of the task, and
+// operations that are still applied synchronously (deletes, conditional and batch updates) first
+// wait for the pending writes of their tasks. The log is replayed on startup, skipping the writes that the
+// database records as applied. Writes that cannot be applied are moved to a dead-letter log.
+@Component
+public class TaskWriteBehind {
+    private static final Logger log = LoggerFactory.getLogger(TaskWriteBehind.class);
+
+    private final boolean enabled;
+    private final Path logPath;
+    private final Path deadLetterPath;
+    private final int batchSize;
+    private final Duration awaitTimeout;
+    private final TaskRepository taskRepository;
+    private final TaskCounters taskCounters;
+    private final CategoryService categoryService;
+    private final Permissions permissions;
+    private final ServiceMetrics metrics;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final BlockingQueue<QueuedWrite> queue = new LinkedBlockingQueue<>();
+    private final Map<Long, PendingTask> pending = new ConcurrentHashMap<>();
+    private TaskWriteLog writeLog;
+    private TaskWriteLog deadLetters;
+    private Thread batcher;
+    private volatile boolean running;
+    // Set by the batcher when a failed write could not be moved out of the log, which must then be kept for a replay
+    private boolean keepLog;
+    // Guarded by this, together with the order of the log and the queue
+    private long sequence;
+
+    private record QueuedWrite(PendingTaskWrite write, long logPosition) {}
+
+    // lastSequence is the latest write of the task, flushed completes once it is in the database
+    private record PendingTask(PersistedTaskDto task, long lastSequence, CompletableFuture<Void> flushed) {}
+
+    public TaskWriteBehind(
+        @Value("${todo.write-behind.enabled}") boolean enabled,
+        @Value("${todo.write-behind.log}") Path logPath,
+        @Value("${todo.write-behind.dead-letter-log}") Path deadLetterPath,
+        @Value("${todo.write-behind.batch-size}") int batchSize,
+        @Value("${todo.write-behind.await-timeout}") Duration awaitTimeout,
+        TaskRepository taskRepository,
+        TaskCounters taskCounters,
+        CategoryService categoryService,
+        Permissions permissions,
+        ServiceMetrics metrics,
+        EntityManager entityManager,
+        PlatformTransactionManager transactionManager,
+        ObjectMapper objectMapper
+    ) {
+        this.enabled = enabled;
+        this.logPath = logPath;
+        this.deadLetterPath = deadLetterPath;
+        this.batchSize = batchSize;
+        this.awaitTimeout = awaitTimeout;
+        this.taskRepository = taskRepository;
+        this.taskCounters = taskCounters;
+        this.categoryService = categoryService;
+        this.permissions = permissions;
+        this.metrics = metrics;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        writeLog = new TaskWriteLog(logPath, objectMapper);
+        deadLetters = new TaskWriteLog(deadLetterPath, objectMapper);
+        List<PendingTaskWrite> logged = writeLog.readAll();
+        long logEnd = writeLog.end();
+        // Later writes may have been applied over the ones before a crash (e.g. by synchronous updates),
+        // so the ones already applied must not be applied again
+        long applied = taskRepository.appliedWriteSequence();
+        sequence = applied;
+        // IDs handed out before a crash must not be handed out again
+        logged.stream()
+            .filter(write -> write.type() == CREATE)
+            .mapToLong(PendingTaskWrite::taskId)
+            .max()
+            .ifPresent(taskRepository::skipIdsThrough);
+        List<PendingTaskWrite> replayed = logged.stream().filter(write -> write.sequence() > applied).toList();
+        if (!replayed.isEmpty()) {
+            log.info("Replaying {} of {} task writes from {}", replayed.size(), logged.size(), logPath);
+        }
+        for (PendingTaskWrite write : replayed) {
+            sequence = Math.max(sequence, write.sequence());
+            enqueue(write, logEnd);
+        }
+        if (replayed.isEmpty() && !logged.isEmpty()) {
+            writeLog.truncateIfDrained(logEnd);
+        }
+
+        running = true;
+        batcher = Thread.ofPlatform().name("task-write-behind").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        if (!enabled) {
+            return;
+        }
+        // Not interrupted, H2 closes its file when a thread is interrupted during IO
+        running = false;
+        batcher.join();
+        writeLog.close();
+        deadLetters.close();
+    }
+
+    public PersistedTaskDto createTask(NewTaskDto newTaskDto, String username) {
+        checkCategory(newTaskDto.categoryId());
+        Long id = taskRepository.nextId();
+        return append(CREATE, id, newTaskDto, username);
+    }
+
+    public PersistedTaskDto updateTask(Long id, NewTaskDto newTaskDto, UserDetails userDetails) {
+        PendingTask pendingTask = pending.get(id);
+        String author = pendingTask != null
+            ? pendingTask.task().author()
+            : taskRepository.findVersionById(id)
+                .orElseThrow(() -> {
+                    metrics.notFound("task");
+                    return new NoSuchElementException("Task " + id + " not found");
+                })
+                .author();
+        checkTaskRights(id, author, userDetails);
+        checkCategory(newTaskDto.categoryId());
+        return append(UPDATE, id, newTaskDto, author);
+    }
+
+    public Optional<PersistedTaskDto> findPendingTask(Long id, UserDetails userDetails) {
+        PendingTask pendingTask = pending.get(id);
+        if (pendingTask == null) {
+            return Optional.empty();
+        }
+        checkTaskRights(id, pendingTask.task().author(), userDetails);
+        return Optional.of(pendingTask.task());
+    }
+
+    public void awaitPendingWrites(Collection<Long> ids) {
+        for (Long id : ids) {
+            PendingTask pendingTask = id == null ? null : pending.get(id);
+            if (pendingTask == null) {
+                continue;
+            }
+            try {
+                pendingTask.flushed().get(awaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new ResponseStatusException(SERVICE_UNAVAILABLE, "Pending writes of task " + id + " were not applied in time", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResponseStatusException(SERVICE_UNAVAILABLE, "Interrupted while waiting for task " + id, e);
+            }
+        }
+    }
+
+    private PersistedTaskDto append(PendingTaskWrite.Type type, Long id, NewTaskDto newTaskDto, String author) {
+        if (!enabled) {
+            throw new IllegalStateException("Write-behind mode is disabled");
+        }
+        try {
+            long position;
+            PendingTaskWrite write;
+            // The log, the queue and the pending tasks must see the writes in the same order
+            synchronized (this) {
+                write = new PendingTaskWrite(
+                    ++sequence,
+                    type,
+                    id,
+                    newTaskDto.name(),
+                    newTaskDto.description(),
+                    newTaskDto.deadline(),
+                    newTaskDto.categoryId(),
+                    author
+                );
+                position = writeLog.append(write);
+                enqueue(write, position);
+            }
+            writeLog.sync(position);
+            return toDto(write);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void enqueue(PendingTaskWrite write, long logPosition) {
+        pending.compute(write.taskId(), (id, previous) -> new PendingTask(
+            toDto(write),
+            write.sequence(),
+            previous == null ? new CompletableFuture<>() : previous.flushed()
+        ));
+        queue.add(new QueuedWrite(write, logPosition));
+    }
+
+    private void run() {
+        List<QueuedWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Whatever queued up while the previous batch was written goes into this one
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                log.warn("Interrupted with {} task writes left, they will be replayed on startup", queue.size());
+                return;
+            }
+
+            List<PendingTaskWrite> writes = batch.stream().map(QueuedWrite::write).toList();
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(writes));
+            } catch (RuntimeException e) {
+                log.warn("Applying {} task writes together failed, applying them one by one", writes.size(), e);
+                for (PendingTaskWrite write : writes) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> apply(List.of(write)));
+                    } catch (RuntimeException writeFailure) {
+                        deadLetter(write, writeFailure);
+                    }
+                }
+            }
+            flushed(writes);
+            try {
+                if (!keepLog) {
+                    writeLog.truncateIfDrained(batch.getLast().logPosition());
+                }
+            } catch (IOException e) {
+                log.error("Could not truncate {}", logPath, e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void apply(List<PendingTaskWrite> writes) {
+        Set<Long> ids = new HashSet<>();
+        writes.forEach(write -> ids.add(write.taskId()));
+        Map<Long, Task> existing = new HashMap<>();
+        taskRepository.findAllById(ids).forEach(task -> existing.put(task.getId(), task));
+
+        Map<Long, Task> created = new LinkedHashMap<>();
+        Map<TaskCounters.Key, Long> deltas = new HashMap<>();
+        for (PendingTaskWrite write : writes) {
+            Task task = existing.get(write.taskId());
+            if (task != null) {
+                if (write.type() == CREATE) {
+                    // Already applied before a restart
+                    continue;
+                }
+                TaskCounters.Key before = TaskCounters.Key.of(task);
+                setFields(task, write);
+                TaskCounters.Key after = TaskCounters.Key.of(task);
+                if (!before.equals(after)) {
+                    deltas.merge(before, -1L, Long::sum);
+                    deltas.merge(after, 1L, Long::sum);
+                }
+            } else if (created.containsKey(write.taskId())) {
+                setFields(created.get(write.taskId()), write);
+            } else if (write.type() == CREATE) {
+                Task newTask = new Task();
+                newTask.setId(write.taskId());
+                newTask.setAuthor(write.author());
+                setFields(newTask, write);
+                created.put(write.taskId(), newTask);
+            } else {
+                log.warn("Dropping update of task {}, which was deleted", write.taskId());
+            }
+        }
+
+        taskRepository.insertAll(created.values());
+        created.values().forEach(task -> deltas.merge(TaskCounters.Key.of(task), 1L, Long::sum));
+        taskCounters.apply(deltas);
+        taskRepository.markWritesApplied(writes.stream().mapToLong(PendingTaskWrite::sequence).max().orElseThrow());
+    }
+
+    // Kept for an operator to inspect and resubmit, the client was told the write was accepted
+    private void deadLetter(PendingTaskWrite write, RuntimeException failure) {
+        log.error("Moving task write {} to {}", write, deadLetterPath, failure);
+        try {
+            deadLetters.sync(deadLetters.append(write));
+            // Not replayed either, it would only fail again
+            transactionTemplate.executeWithoutResult(status -> taskRepository.markWritesApplied(write.sequence()));
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not move task write {} to {}, it stays in {} until restart", write.sequence(), deadLetterPath, logPath, e);
+            keepLog = true;
+        }
+    }
+
+    private void setFields(Task task, PendingTaskWrite write) {
+        task.setName(write.name());
+        task.setDescription(write.description());
+        task.setDeadline(write.deadline());
+        task.setCategory(entityManager.getReference(Category.class, write.categoryId()));
+    }
+
+    private void flushed(List<PendingTaskWrite> writes) {
+        Map<Long, Long> lastSequences = new HashMap<>();
+        writes.forEach(write -> lastSequences.merge(write.taskId(), write.sequence(), Math::max));
+        lastSequences.forEach((id, lastSequence) -> {
+            PendingTask[] done = new PendingTask[1];
+            // Tasks written again in the meantime stay pending
+            pending.computeIfPresent(id, (key, pendingTask) -> {
+                if (pendingTask.lastSequence() > lastSequence) {
+                    return pendingTask;
+                }
+                done[0] = pendingTask;
+                return null;
+            });
+            if (done[0] != null) {
+                done[0].flushed().complete(null);
+            }
+        });
+    }
+
+    private void checkCategory(Long categoryId) {
+        try {
+            categoryService.getCategory(categoryId);
+        } catch (NoSuchElementException e) {
+            throw new NoSuchElementException("Category " + categoryId + " not found");
+        }
+    }
+
+    private void checkTaskRights(Long id, String author, UserDetails userDetails) {
+        if (!permissions.canAccessTask(author, userDetails)) {
+            metrics.accessDenied("task");
+            throw new ResponseStatusException(FORBIDDEN, "You are not authorized to interact with task " + id);
+        }
+    }
+
+    private static PersistedTaskDto toDto(PendingTaskWrite write) {
+        return new PersistedTaskDto(
+            write.taskId(),
+            write.name(),
+            write.description(),
+            write.deadline(),
+            write.categoryId(),
+            write.author()
+        );
+    }
+}
@@ -0,0 +1,115 @@
+package ch.cern.todo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.*;
+
+// Append-only file of pending task writes, one JSON document per line.
+// Writers call sync before acknowledging, and concurrent writers share a single fsync.
+final class TaskWriteLog implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(TaskWriteLog.class);
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+    // Lock order is syncLock, then this
+    private final Object syncLock = new Object();
+    private long written;
+    private long synced;
+
+    TaskWriteLog(Path path, ObjectMapper objectMapper) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.channel = FileChannel.open(path, CREATE, WRITE);
+        this.written = channel.size();
+        this.synced = written;
+        channel.position(written);
+    }
+
+    List<PendingTaskWrite> readAll() throws IOException {
+        byte[] content = Files.readAllBytes(path);
+        List<PendingTaskWrite> writes = new ArrayList<>();
+        int start = 0;
+        for (int end = 0; end < content.length; end++) {
+            if (content[end] == '\n') {
+                writes.add(objectMapper.readValue(content, start, end - start, PendingTaskWrite.class));
+                start = end + 1;
+            }
+        }
+        if (start < content.length) {
+            // Torn by a crash during the append, so it was never acknowledged
+            log.warn("Ignoring incomplete last entry of {}", path);
+            synchronized (this) {
+                channel.truncate(start);
+                written = start;
+                synced = start;
+            }
+        }
+        return writes;
+    }
+
+    synchronized long end() {
+        return written;
+    }
+
+    // Returns the position to pass to sync
+    synchronized long append(PendingTaskWrite write) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(write) + "\n").getBytes(StandardCharsets.UTF_8));
+        int length = line.remaining();
+        while (line.hasRemaining()) {
+            channel.write(line);
+        }
+        written += length;
+        return written;
+    }
+
+    // Returns once everything up to position is on disk
+    void sync(long position) throws IOException {
+        synchronized (syncLock) {
+            if (synced >= position) {
+                // Forced by another writer while this one was waiting
+                return;
+            }
+            long target;
+            synchronized (this) {
+                target = written;
+            }
+            channel.force(false);
+            synced = target;
+        }
+    }
+
+    // Starts the log over once every appended write has been applied, i.e. position is the end of the log
+    void truncateIfDrained(long position) throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (written == position) {
+                    channel.truncate(0);
+                    written = 0;
+                    synced = 0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,41 @@
+package ch.cern.todo.service;
+
+import ch.cern.todo.repository.TaskTombstones;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Keeps the tombstones of the last retention window only. Clients that sync less often than that
+// get a full sync instead (see TaskService.sync).
+@Component
+public class TombstoneRetention {
+    private static final Logger log = LoggerFactory.getLogger(TombstoneRetention.class);
+
+    private final TaskTombstones taskTombstones;
+    private final Duration retention;
+    private final Clock clock;
+
+    public TombstoneRetention(
+        TaskTombstones taskTombstones,
+        @Value("${todo.sync.tombstone-retention}") Duration retention,
+        Clock clock
+    ) {
+        this.taskTombstones = taskTombstones;
+        this.retention = retention;
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${todo.sync.tombstone-prune-interval}", initialDelayString = "${todo.sync.tombstone-prune-interval}")
+    public void prune() {
+        int pruned = taskTombstones.prune(LocalDateTime.now(clock).minus(retention));
+        if (pruned > 0) {
+            log.info("Pruned {} task tombstones older than {}", pruned, retention);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ch.cern.todo.service;
+
+import ch.cern.todo.model.TaskChangedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static ch.cern.todo.model.TaskChangedEvent.Type.DELETED;
+
+// A cache of per-task snapshots that carry the task version, kept up to date from committed TaskChangedEvents.
+// Loads that race with a change are not stored (see ChangeStamps), and changes whose listeners run out of order
+// do not replace a newer version. Shared by TaskCache and TaskVersions, which only differ in what they snapshot.
+final class VersionedTaskCache<V> {
+    private final Cache cache;
+    // Updated atomically per task
+    private final ConcurrentMap<Object, Object> entries;
+    private final ChangeStamps stamps = new ChangeStamps();
+    private final Class<V> type;
+    private final ToLongFunction<V> versionOf;
+
+    VersionedTaskCache(Cache cache, Class<V> type, ToLongFunction<V> versionOf) {
+        this.cache = cache;
+        this.entries = ((CaffeineCache) cache).getNativeCache().asMap();
+        this.type = type;
+        this.versionOf = versionOf;
+    }
+
+    Optional<V> get(Long id, Function<Long, Optional<V>> loader) {
+        V cached = cache.get(id, type);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long stamp = stamps.stamp(id);
+        Optional<V> loaded = loader.apply(id);
+        // A change committed while loading has been or is being applied, and must not be undone
+        loaded.ifPresent(value -> entries.compute(
+            id,
+            (key, existing) -> existing == null && stamps.unchangedSince(id, stamp) ? value : existing
+        ));
+        return loaded;
+    }
+
+    void apply(TaskChangedEvent event, Function<TaskChangedEvent, V> snapshot) {
+        stamps.changed(event.id());
+        if (event.type() == DELETED) {
+            cache.evict(event.id());
+            return;
+        }
+
+        V value = snapshot.apply(event);
+        entries.compute(
+            event.id(),
+            (key, existing) -> type.isInstance(existing) && versionOf.applyAsLong(type.cast(existing)) > versionOf.applyAsLong(value)
+                ? existing
+                : value
+        );
+    }
+}
@@ -0,0 +1,6 @@
+-- Sequence number of the last write-behind log entry applied to the database, updated in the same
+-- transaction as the writes so that a replay after a crash skips exactly the ones already applied
+create table task_write_behind_state (
+    applied_sequence bigint not null
+);
+insert into task_write_behind_state (applied_sequence) values (0);
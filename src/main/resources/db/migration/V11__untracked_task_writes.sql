@@ -0,0 +1,4 @@
+-- Rows inserted or updated without a modification sequence number (SQL console, scripts, seeding over
+-- plain JDBC) get the highest possible one, see ModificationSequence.UNTRACKED and UntrackedTaskWrites
+alter table tasks alter column modification_seq set default 9223372036854775807;
+alter table tasks alter column modification_seq set on update 9223372036854775807;
@@ -0,0 +1,22 @@
+-- Schema as previously generated by Hibernate from the entities
+create table task_categories (
+    category_id bigint not null,
+    category_name varchar(100) not null,
+    category_description varchar(500),
+    primary key (category_id)
+);
+
+create sequence task_categories_seq start with 1 increment by 50;
+
+create table tasks (
+    task_id bigint not null,
+    task_name varchar(100) not null,
+    task_description varchar(500),
+    deadline timestamp(6) not null,
+    category_id bigint not null,
+    author varchar(255) not null,
+    primary key (task_id),
+    constraint tasks_category_fk foreign key (category_id) references task_categories (category_id)
+);
+
+create sequence tasks_seq start with 1 increment by 50;
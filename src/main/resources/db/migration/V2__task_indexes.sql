@@ -0,0 +1,4 @@
+-- Non-admin searches always filter on author, so it leads the composite indexes
+create index tasks_author_deadline_idx on tasks (author, deadline);
+create index tasks_author_category_idx on tasks (author, category_id);
+create index tasks_category_idx on tasks (category_id);
@@ -0,0 +1,2 @@
+-- Admin deadline range searches are not filtered by author and cannot use (author, deadline)
+create index tasks_deadline_idx on tasks (deadline);
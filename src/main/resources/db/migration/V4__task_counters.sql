@@ -0,0 +1,13 @@
+-- Number of tasks per author, category and deadline day, maintained by TaskService
+create table task_counters (
+    author varchar(255) not null,
+    category_id bigint not null,
+    deadline_day date not null,
+    task_count bigint not null,
+    primary key (author, category_id, deadline_day)
+);
+
+insert into task_counters (author, category_id, deadline_day, task_count)
+select author, category_id, cast(deadline as date), count(*)
+from tasks
+group by author, category_id, cast(deadline as date);
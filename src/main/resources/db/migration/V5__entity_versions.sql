@@ -0,0 +1,3 @@
+-- Optimistic locking versions, also used as ETags
+alter table tasks add column version bigint default 0 not null;
+alter table task_categories add column version bigint default 0 not null;
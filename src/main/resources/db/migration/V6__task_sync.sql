@@ -0,0 +1,17 @@
+-- Modification sequence for incremental sync, existing tasks are only returned by a full sync
+create sequence task_modifications_seq start with 1 increment by 50;
+
+alter table tasks add column modification_seq bigint default 0 not null;
+-- Each value is a whole block of the sequence, so the application's later blocks cannot reuse it
+update tasks set modification_seq = next value for task_modifications_seq;
+create index tasks_author_modification_idx on tasks (author, modification_seq);
+create index tasks_modification_idx on tasks (modification_seq);
+
+-- Deleted tasks, so that incremental syncs can report them
+create table task_tombstones (
+    task_id bigint primary key,
+    author varchar(255) not null,
+    modification_seq bigint not null
+);
+create index task_tombstones_author_modification_idx on task_tombstones (author, modification_seq);
+create index task_tombstones_modification_idx on task_tombstones (modification_seq);
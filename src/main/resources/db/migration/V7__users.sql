@@ -0,0 +1,14 @@
+-- Spring Security's default users schema, previously created with the in-memory database on every startup
+create table if not exists users (
+    username varchar_ignorecase(50) not null primary key,
+    password varchar(500) not null,
+    enabled boolean not null
+);
+
+create table if not exists authorities (
+    username varchar_ignorecase(50) not null,
+    authority varchar(50) not null,
+    constraint fk_authorities_users foreign key (username) references users (username)
+);
+
+create unique index if not exists ix_auth_username on authorities (username, authority);
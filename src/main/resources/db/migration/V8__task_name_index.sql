@@ -0,0 +1,3 @@
+-- Searches sorted by name: the non-admin author filter and the order are both answered by the index.
+-- Sorting by deadline already uses tasks_author_deadline_idx and tasks_deadline_idx.
+create index tasks_author_name_idx on tasks (author, task_name);
@@ -0,0 +1,10 @@
+-- Tombstones are pruned once they are older than the retention window
+alter table task_tombstones add column deleted_at timestamp default localtimestamp not null;
+create index task_tombstones_deleted_idx on task_tombstones (deleted_at);
+
+-- Highest modification sequence number of the pruned tombstones. Syncs from an older token
+-- may miss deletions, so they start over with a full sync.
+create table task_sync_horizon (
+    modification_seq bigint not null
+);
+insert into task_sync_horizon (modification_seq) values (-1);
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 
@@ -18,6 +19,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class CategoryTests extends TodoApplicationTests {
@@ -165,6 +167,19 @@ public class CategoryTests extends TodoApplicationTests {
                 .andExpect(content().json(objectMapper.writeValueAsString(expected)));
         }
 
+        @Test
+        @WithMockUser(roles = "USER")
+        void given_ReadCategory_when_GetCacheMetrics_then_CategoryCacheIsReported() throws Exception {
+            Category newCategory = categoryRepository.save(new Category(new NewCategoryDto("test title", "test description")));
+            mockMvc
+                .perform(get("/categories/" + newCategory.getId()))
+                .andExpect(status().isOk());
+
+            mockMvc
+                .perform(get("/actuator/metrics/cache.gets?tag=name:categories"))
+                .andExpect(status().isOk());
+        }
+
         @Test
         @WithMockUser(roles = "USER")
         void given_MissingCategory_when_GetCategory_then_Status404() throws Exception {
@@ -209,6 +224,30 @@ public class CategoryTests extends TodoApplicationTests {
             assertEquals(description, updatedCategory.getDescription());
         }
 
+        @Test
+        @WithMockUser(roles = "ADMIN")
+        void given_CachedCategory_when_PutCategory_then_GetReturnsUpdatedCategory() throws Exception {
+            Category newCategory = categoryRepository.save(new Category(new NewCategoryDto("first title", "first description")));
+            mockMvc
+                .perform(get("/categories/" + newCategory.getId()))
+                .andExpect(status().isOk());
+
+            Map<String, Object> inputOutput = new HashMap<>();
+            inputOutput.put("name", "new title");
+            inputOutput.put("description", "new description");
+            String inputOutputAsString = objectMapper.writeValueAsString(inputOutput);
+
+            mockMvc
+                .perform(put("/categories/" + newCategory.getId())
+                    .content(inputOutputAsString)
+                    .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+            mockMvc
+                .perform(get("/categories/" + newCategory.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().json(inputOutputAsString));
+        }
+
         @Test
         @WithMockUser(roles = "ADMIN")
         void given_MissingCategory_when_PutCategory_then_Status404() throws Exception {
@@ -336,4 +375,52 @@ public class CategoryTests extends TodoApplicationTests {
                 .andExpect(status().isOk());
         }
     }
+
+    @Nested
+    class ConditionalRequestTests {
+        @Test
+        @WithMockUser(roles = "USER")
+        void given_CurrentETag_when_GetCategory_then_Status304() throws Exception {
+            Category category = categoryRepository.save(new Category("test title", "test description"));
+
+            String etag = mockMvc
+                .perform(get("/categories/" + category.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + category.getVersion() + "\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            mockMvc
+                .perform(get("/categories/" + category.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        }
+
+        @Test
+        @WithMockUser(roles = "ADMIN")
+        void given_StaleETag_when_PutCategory_then_Status412() throws Exception {
+            Category category = categoryRepository.save(new Category("first title", "first description"));
+            Map<String, Object> input = new HashMap<>();
+            input.put("name", "new title");
+            input.put("description", "new description");
+            String inputAsString = objectMapper.writeValueAsString(input);
+            String etag = "\"" + category.getVersion() + "\"";
+
+            mockMvc
+                .perform(put("/categories/" + category.getId())
+                    .header(HttpHeaders.IF_MATCH, etag)
+                    .content(inputAsString)
+                    .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + (category.getVersion() + 1) + "\""));
+
+            mockMvc
+                .perform(put("/categories/" + category.getId())
+                    .header(HttpHeaders.IF_MATCH, etag)
+                    .content(inputAsString)
+                    .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+
+            assertEquals("new title", categoryRepository.findById(category.getId()).orElseThrow().getName());
+        }
+    }
 }
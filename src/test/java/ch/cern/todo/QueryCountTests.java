@@ -0,0 +1,166 @@
+package ch.cern.todo;
+
+import ch.cern.todo.model.Category;
+import ch.cern.todo.model.NewTaskDto;
+import ch.cern.todo.model.Task;
+import ch.cern.todo.repository.CategoryRepository;
+import ch.cern.todo.repository.TaskRepository;
+import ch.cern.todo.service.TaskCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.ResultActions;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Fails when a read starts issuing statements per row, e.g. to load the category of every task.
+// Statements are counted on the JDBC connections, so JdbcTemplate traffic is included.
+public class QueryCountTests extends TodoApplicationTests {
+    private static final int CATEGORIES = 20;
+    private static final int TASKS_PER_CATEGORY = 5;
+    private static final String username = "QueryCountUser";
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private TaskRepository taskRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    private final List<Task> tasks = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        for (int i = 0; i < CATEGORIES; i++) {
+            Category category = categoryRepository.save(new Category("category " + i, null));
+            for (int j = 0; j < TASKS_PER_CATEGORY; j++) {
+                tasks.add(taskRepository.save(new Task(
+                    new NewTaskDto("task " + j, null, LocalDateTime.of(2000, 1, 1, 0, 0), category.getId()),
+                    category,
+                    username
+                )));
+            }
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        taskRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    // The second statement looks up the tasks written since the in-memory indexes caught up
+    @Test
+    @WithMockUser(roles = "USER", username = username)
+    void when_Search_then_TwoStatements() throws Exception {
+        assertStatements(2, () -> mockMvc
+            .perform(get("/tasks/search"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(CATEGORIES * TASKS_PER_CATEGORY))
+        );
+    }
+
+    @Test
+    @WithMockUser(roles = "USER", username = username)
+    void when_SearchPage_then_TwoStatements() throws Exception {
+        assertStatements(2, () -> mockMvc
+            .perform(get("/tasks/search?limit=50"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(50))
+        );
+    }
+
+    @Test
+    @WithMockUser(roles = "USER", username = username)
+    void when_GetTask_then_CategoryIsNotLoaded() throws Exception {
+        Task task = tasks.getFirst();
+        assertStatements(1, () -> mockMvc
+            .perform(get("/tasks/" + task.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.categoryId").value(task.getCategory().getId()))
+        );
+    }
+
+    // Starts from an empty task cache, so that reads reach the database
+    private void assertStatements(long max, MockMvcCall call) throws Exception {
+        cacheManager.getCache(TaskCache.TASK_CACHE).clear();
+        STATEMENTS.set(0);
+        call.perform();
+        long statements = STATEMENTS.get();
+        assertTrue(statements <= max, "Expected at most " + max + " statements but " + statements + " were issued");
+    }
+
+    @FunctionalInterface
+    private interface MockMvcCall {
+        ResultActions perform() throws Exception;
+    }
+
+    private static final AtomicLong STATEMENTS = new AtomicLong();
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    @TestConfiguration
+    static class StatementCounting {
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    private static class CountingDataSource extends DelegatingDataSource {
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+
+        private static Connection counting(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    if (STATEMENT_FACTORIES.contains(method.getName())) {
+                        STATEMENTS.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            );
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ch.cern.todo;
+
+import ch.cern.todo.repository.CategoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class SecurityTests extends TodoApplicationTests {
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @AfterEach
+    public void tearDown() {
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void given_ValidCredentials_when_AuthenticatingTwice_then_UserIsServedFromCache() throws Exception {
+        mockMvc
+            .perform(get("/tasks/search").with(httpBasic("userTwo", "u2pass")))
+            .andExpect(status().isOk());
+        assertNotNull(cacheManager.getCache(TodoApplication.USER_CACHE).get("userTwo"));
+
+        // The cached copy must still carry the password once the first authentication erased its own
+        mockMvc
+            .perform(get("/tasks/search").with(httpBasic("userTwo", "u2pass")))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void given_WrongPasswordForCachedUser_when_Authenticating_then_Status401() throws Exception {
+        mockMvc
+            .perform(get("/tasks/search").with(httpBasic("user", "u1pass")))
+            .andExpect(status().isOk());
+
+        mockMvc
+            .perform(get("/tasks/search").with(httpBasic("user", "wrong password")))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void given_AuthenticatedAdmin_when_PostCategories_then_Status201() throws Exception {
+        mockMvc
+            .perform(post("/categories")
+                .with(httpBasic("admin", "admin"))
+                .content("{\"name\" : \"admin category\"}")
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isCreated());
+    }
+
+    @Test
+    void given_AuthenticatedUser_when_PostCategories_then_Status403() throws Exception {
+        mockMvc
+            .perform(post("/categories")
+                .with(httpBasic("user", "u1pass"))
+                .content("{\"name\" : \"user category\"}")
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isForbidden());
+    }
+}
@@ -5,22 +5,42 @@ import ch.cern.todo.model.NewTaskDto;
 import ch.cern.todo.model.PersistedTaskDto;
 import ch.cern.todo.model.Task;
 import ch.cern.todo.repository.CategoryRepository;
+import ch.cern.todo.repository.TaskCounters;
 import ch.cern.todo.repository.TaskRepository;
+import ch.cern.todo.repository.TaskTombstones;
+import ch.cern.todo.repository.UntrackedTaskWrites;
+import ch.cern.todo.service.TaskChangeFeed;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class TaskTests extends TodoApplicationTests {
@@ -28,6 +48,16 @@ public class TaskTests extends TodoApplicationTests {
     private CategoryRepository categoryRepository;
     @Autowired
     private TaskRepository taskRepository;
+    @Autowired
+    private TaskCounters taskCounters;
+    @Autowired
+    private TaskTombstones taskTombstones;
+    @Autowired
+    private UntrackedTaskWrites untrackedTaskWrites;
+    @Autowired
+    private TaskChangeFeed taskChangeFeed;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private Category genericCategory;
     private final String genericUsername = "GenericUser";
@@ -41,6 +71,8 @@ public class TaskTests extends TodoApplicationTests {
     public void tearDown() {
         taskRepository.deleteAll();
         categoryRepository.deleteAll();
+        // deleteAll bypasses TaskService, so the counters have to be recomputed
+        taskCounters.rebuild();
     }
 
     @Nested
@@ -263,6 +295,45 @@ public class TaskTests extends TodoApplicationTests {
                 .perform(get("/tasks/" + newTask.getId()))
                 .andExpect(status().isOk());
         }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_CachedTask_when_TaskIsWritten_then_CacheFollowsWrites() throws Exception {
+            mockMvc
+                .perform(get("/tasks/" + preExistingTask.getId()))
+                .andExpect(status().isOk());
+            mockMvc
+                .perform(get("/actuator/metrics/cache.gets?tag=name:tasks&tag=result:hit"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").value(greaterThanOrEqualTo(1.0)));
+
+            preExistingTask.setName("renamed title");
+            taskRepository.save(preExistingTask);
+            mockMvc
+                .perform(get("/tasks/" + preExistingTask.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("renamed title"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+            taskRepository.deleteById(preExistingTask.getId());
+            mockMvc
+                .perform(get("/tasks/" + preExistingTask.getId()))
+                .andExpect(status().isNotFound());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_ReadTask_when_GetPoolMetrics_then_ConnectionPoolIsReported() throws Exception {
+            mockMvc
+                .perform(get("/tasks/" + preExistingTask.getId()))
+                .andExpect(status().isOk());
+
+            for (String metric : List.of("active", "idle", "pending", "acquire")) {
+                mockMvc
+                    .perform(get("/actuator/metrics/hikaricp.connections." + metric + "?tag=pool:todo"))
+                    .andExpect(status().isOk());
+            }
+        }
     }
 
     @Nested
@@ -535,6 +606,117 @@ public class TaskTests extends TodoApplicationTests {
         }
     }
 
+    @Nested
+    class BatchTests {
+        private Task saveTask(String author) {
+            return taskRepository.save(
+                new Task(
+                    new NewTaskDto(
+                        "test title",
+                        "test description",
+                        "1970-01-01T00:00",
+                        genericCategory.getId()
+                    ),
+                    genericCategory,
+                    author
+                )
+            );
+        }
+
+        private Map<String, Object> taskBody(String name, Long categoryId) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("name", name);
+            body.put("description", "test description");
+            body.put("deadline", "1970-01-01T00:00");
+            body.put("categoryId", categoryId);
+            return body;
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_TaskList_when_PostTaskBatch_then_ValidTasksAreCreated() throws Exception {
+            List<Map<String, Object>> body = List.of(
+                taskBody("first", genericCategory.getId()),
+                taskBody("", genericCategory.getId()),
+                taskBody("third", 9999999L)
+            );
+
+            mockMvc
+                .perform(post("/tasks/batch")
+                    .content(objectMapper.writeValueAsString(body))
+                    .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[2].status").value(404));
+
+            assertEquals(1, taskRepository.count());
+            Task created = taskRepository.findAll().getFirst();
+            assertEquals("first", created.getName());
+            assertEquals(genericUsername, created.getAuthor());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_TasksFromTwoUsers_when_PutTaskBatch_then_OnlyOwnTaskIsUpdated() throws Exception {
+            Task ownTask = saveTask(genericUsername);
+            Task otherTask = saveTask("OtherUserName");
+
+            List<Map<String, Object>> body = List.of(
+                Map.of("id", ownTask.getId(), "task", taskBody("new name", genericCategory.getId())),
+                Map.of("id", otherTask.getId(), "task", taskBody("new name", genericCategory.getId()))
+            );
+
+            mockMvc
+                .perform(put("/tasks/batch")
+                    .content(objectMapper.writeValueAsString(body))
+                    .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[1].status").value(403));
+
+            assertEquals("new name", taskRepository.findById(ownTask.getId()).orElseThrow().getName());
+            assertEquals("test title", taskRepository.findById(otherTask.getId()).orElseThrow().getName());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_TasksFromTwoUsers_when_DeleteTaskBatch_then_OnlyOwnTaskIsDeleted() throws Exception {
+            Task ownTask = saveTask(genericUsername);
+            Task otherTask = saveTask("OtherUserName");
+
+            mockMvc
+                .perform(delete("/tasks/batch")
+                    .content(objectMapper.writeValueAsString(List.of(ownTask.getId(), otherTask.getId(), 999999999L)))
+                    .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[1].status").value(403))
+                .andExpect(jsonPath("$[2].status").value(404));
+
+            assertEquals(1, taskRepository.count());
+            assertTrue(taskRepository.existsById(otherTask.getId()));
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_RepeatedId_when_DeleteTaskBatch_then_TaskIsDeletedAndCountedOnce() throws Exception {
+            Task deletedTask = saveTask(genericUsername);
+            saveTask(genericUsername);
+            taskCounters.rebuild();
+
+            mockMvc
+                .perform(delete("/tasks/batch")
+                    .content(objectMapper.writeValueAsString(List.of(deletedTask.getId(), deletedTask.getId())))
+                    .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[1].status").value(404));
+
+            mockMvc.perform(get("/tasks/count")).andExpect(content().string("1"));
+        }
+    }
+
     @Nested
     class SearchTests {
         @Test
@@ -582,6 +764,40 @@ public class TaskTests extends TodoApplicationTests {
                 .andExpect(status().isForbidden());
         }
 
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_Search_when_GetSearchMetrics_then_PhasesAndResultSizeAreReported() throws Exception {
+            mockMvc
+                .perform(get("/tasks/search?dueToday=true&sort=deadline"))
+                .andExpect(status().isOk());
+
+            mockMvc
+                .perform(get("/actuator/metrics/todo.tasks.search?tag=operation:search&tag=phase:query"))
+                .andExpect(status().isOk());
+            mockMvc
+                .perform(get("/actuator/metrics/todo.tasks.search?tag=operation:search&tag=phase:specification"))
+                .andExpect(status().isOk());
+            mockMvc
+                .perform(get("/actuator/metrics/todo.tasks.search.results?tag=operation:search"))
+                .andExpect(status().isOk());
+            mockMvc
+                .perform(get("/actuator/metrics/todo.service?tag=service:TaskService&tag=operation:search&tag=exception:none"))
+                .andExpect(status().isOk());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_SearchByAuthorAsUser_when_GetDenialMetrics_then_DenialIsCounted() throws Exception {
+            mockMvc
+                .perform(get("/tasks/search?author=" + genericUsername))
+                .andExpect(status().isForbidden());
+
+            mockMvc
+                .perform(get("/actuator/metrics/todo.access.denied?tag=check:author-filter"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").value(greaterThanOrEqualTo(1.0)));
+        }
+
         @Test
         @WithMockUser(roles = "USER", username = genericUsername)
         void given_ExistingTasks_when_SearchTasksByName_then_TasksAreReturned() throws Exception {
@@ -696,6 +912,86 @@ public class TaskTests extends TodoApplicationTests {
                 .andExpect(content().json(jsonAsString));
         }
 
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_ExistingTasks_when_SearchTasksByDeadlineRange_then_TasksAreReturned() throws Exception {
+            for (String deadline : new String[]{"1999-12-31T23:59", "2000-02-01T00:00"}) {
+                taskRepository.save(
+                    new Task(
+                        new NewTaskDto("test title", "test description", deadline, genericCategory.getId()),
+                        genericCategory,
+                        genericUsername
+                    )
+                );
+            }
+            List<PersistedTaskDto> taskList = new ArrayList<>();
+            taskList.add(new PersistedTaskDto(taskRepository.save(
+                new Task(
+                    new NewTaskDto("test title", "test description", "2000-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    genericUsername
+                )
+            )));
+
+            mockMvc
+                .perform(get("/tasks/search?deadlineFrom=2000-01-01T00:00&deadlineTo=2000-02-01T00:00"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(taskList)));
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_ExistingTasks_when_SearchTasksDueToday_then_TasksAreReturned() throws Exception {
+            LocalDate today = LocalDate.now();
+            for (LocalDateTime deadline : new LocalDateTime[]{today.minusDays(1).atTime(12, 0), today.plusDays(1).atTime(0, 0)}) {
+                taskRepository.save(
+                    new Task(
+                        new NewTaskDto("test title", "test description", deadline, genericCategory.getId()),
+                        genericCategory,
+                        genericUsername
+                    )
+                );
+            }
+            List<PersistedTaskDto> taskList = new ArrayList<>();
+            taskList.add(new PersistedTaskDto(taskRepository.save(
+                new Task(
+                    new NewTaskDto("test title", "test description", today.atTime(23, 59), genericCategory.getId()),
+                    genericCategory,
+                    genericUsername
+                )
+            )));
+
+            mockMvc
+                .perform(get("/tasks/search?dueToday=true"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(taskList)));
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_ExistingTasks_when_SearchOverdueTasks_then_TasksAreReturned() throws Exception {
+            taskRepository.save(
+                new Task(
+                    new NewTaskDto("test title", "test description", LocalDateTime.now().plusDays(1), genericCategory.getId()),
+                    genericCategory,
+                    genericUsername
+                )
+            );
+            List<PersistedTaskDto> taskList = new ArrayList<>();
+            taskList.add(new PersistedTaskDto(taskRepository.save(
+                new Task(
+                    new NewTaskDto("test title", "test description", "1970-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    genericUsername
+                )
+            )));
+
+            mockMvc
+                .perform(get("/tasks/search?overdue=true"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(taskList)));
+        }
+
         @Test
         @WithMockUser(roles = "USER", username = genericUsername)
         void given_ExistingTasks_when_SearchTasksByCategory_then_TasksAreReturned() throws Exception {
@@ -733,6 +1029,86 @@ public class TaskTests extends TodoApplicationTests {
                 .andExpect(content().json(objectMapper.writeValueAsString(taskList)));
         }
 
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_TaskMovedToOtherCategory_when_SearchTasksByCategory_then_OnlyNewCategoryReturnsIt() throws Exception {
+            Category otherCategory = categoryRepository.save(new Category("other name", "other description"));
+            Task task = taskRepository.save(
+                new Task(
+                    new NewTaskDto("test title", "test description", "1970-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    genericUsername
+                )
+            );
+            taskRepository.save(
+                new Task(
+                    new NewTaskDto("other title", "test description", "1970-01-01T00:00", otherCategory.getId()),
+                    otherCategory,
+                    "OtherUserName"
+                )
+            );
+
+            Map<String, Object> body = new HashMap<>();
+            body.put("name", "test title");
+            body.put("deadline", "1970-01-01T00:00");
+            body.put("categoryId", otherCategory.getId());
+            mockMvc
+                .perform(put("/tasks/" + task.getId())
+                    .content(objectMapper.writeValueAsString(body))
+                    .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk());
+
+            mockMvc
+                .perform(get("/tasks/search?category=" + genericCategory.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+            mockMvc
+                .perform(get("/tasks/search?category=" + otherCategory.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(task.getId()));
+            mockMvc
+                .perform(get("/tasks/search?category=" + otherCategory.getId() + "&name=test"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_TaskChangedOutsideTheApplication_when_SearchTasks_then_TaskIsFound() throws Exception {
+            Category otherCategory = categoryRepository.save(new Category("other name", "other description"));
+            Task task = taskRepository.save(
+                new Task(
+                    new NewTaskDto("test title", "test description", "1970-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    genericUsername
+                )
+            );
+            jdbcTemplate.update(
+                "update tasks set task_name = 'changed by hand', category_id = ? where task_id = ?",
+                otherCategory.getId(),
+                task.getId()
+            );
+
+            String search = "/tasks/search?name=hand&category=" + otherCategory.getId();
+            mockMvc
+                .perform(get(search))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(task.getId()));
+
+            assertEquals(1, untrackedTaskWrites.adopt());
+            mockMvc
+                .perform(get(search))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+            mockMvc
+                .perform(get("/tasks/search?category=" + genericCategory.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        }
+
         @Test
         @WithMockUser(roles = "USER", username = genericUsername)
         void given_ExistingTasks_when_SearchTasksByMultipleCriterion_then_TasksAreReturned() throws Exception {
@@ -806,5 +1182,687 @@ public class TaskTests extends TodoApplicationTests {
                 .andExpect(status().isOk())
                 .andExpect(content().json(objectMapper.writeValueAsString(taskList)));
         }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_RenamedTask_when_SearchTasksByName_then_OnlyNewNameMatches() throws Exception {
+            Task task = taskRepository.save(
+                new Task(
+                    new NewTaskDto(
+                        "original name",
+                        "test description",
+                        "1970-01-01T00:00",
+                        genericCategory.getId()
+                    ),
+                    genericCategory,
+                    genericUsername
+                )
+            );
+            task.setName("renamed task");
+            List<PersistedTaskDto> taskList = new ArrayList<>();
+            taskList.add(new PersistedTaskDto(taskRepository.save(task)));
+
+            mockMvc
+                .perform(get("/tasks/search?name=original"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+            mockMvc
+                .perform(get("/tasks/search?name=renamed"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(taskList)));
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_ExistingTasks_when_SearchTasksByShortName_then_TasksAreReturned() throws Exception {
+            List<PersistedTaskDto> taskList = new ArrayList<>();
+            taskList.add(new PersistedTaskDto(taskRepository.save(
+                new Task(
+                    new NewTaskDto(
+                        "xy task",
+                        "test description",
+                        "1970-01-01T00:00",
+                        genericCategory.getId()
+                    ),
+                    genericCategory,
+                    genericUsername
+                )
+            )));
+
+            mockMvc
+                .perform(get("/tasks/search?name=xy"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(taskList)));
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_ExistingTasks_when_SearchTasksWithLimit_then_TasksArePaginated() throws Exception {
+            List<PersistedTaskDto> firstPage = new ArrayList<>();
+            List<PersistedTaskDto> secondPage = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                PersistedTaskDto saved = new PersistedTaskDto(taskRepository.save(
+                    new Task(
+                        new NewTaskDto(
+                            "test name " + i,
+                            "test description",
+                            "1970-01-01T00:00",
+                            genericCategory.getId()
+                        ),
+                        genericCategory,
+                        genericUsername
+                    )
+                ));
+                (i < 2 ? firstPage : secondPage).add(saved);
+            }
+
+            String link = mockMvc
+                .perform(get("/tasks/search?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")))
+                .andExpect(content().json(objectMapper.writeValueAsString(firstPage)))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.LINK);
+
+            Matcher cursor = Pattern.compile("after=([^&>]+)").matcher(link);
+            assertTrue(cursor.find());
+
+            mockMvc
+                .perform(get("/tasks/search?limit=2&after=" + cursor.group(1)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LINK))
+                .andExpect(content().json(objectMapper.writeValueAsString(secondPage)));
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_MalformedCursor_when_SearchTasks_then_Status400() throws Exception {
+            mockMvc
+                .perform(get("/tasks/search?after=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_ExistingTasks_when_SearchTasksWithSort_then_TasksAreOrdered() throws Exception {
+            String[][] tasks = {
+                {"b name", "1970-01-02T00:00"},
+                {"a name", "1970-01-01T00:00"},
+                {"c name", "1970-01-02T00:00"}
+            };
+            for (String[] task : tasks) {
+                taskRepository.save(
+                    new Task(
+                        new NewTaskDto(task[0], "test description", task[1], genericCategory.getId()),
+                        genericCategory,
+                        genericUsername
+                    )
+                );
+            }
+
+            mockMvc
+                .perform(get("/tasks/search?sort=deadline,-name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].name").value("a name"))
+                .andExpect(jsonPath("$[1].name").value("c name"))
+                .andExpect(jsonPath("$[2].name").value("b name"));
+            mockMvc
+                .perform(get("/tasks/search?sort=deadline,-name&limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].name").value("c name"));
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_ExistingTasks_when_SearchTasksWithFields_then_OnlyFieldsAreReturned() throws Exception {
+            Task task = taskRepository.save(
+                new Task(
+                    new NewTaskDto("test name", "test description", "1970-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    genericUsername
+                )
+            );
+
+            mockMvc
+                .perform(get("/tasks/search?fields=id,name,deadline&sort=-deadline"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(task.getId()))
+                .andExpect(jsonPath("$[0].name").value("test name"))
+                .andExpect(jsonPath("$[0].deadline").value("1970-01-01T00:00"))
+                .andExpect(jsonPath("$[0].description").doesNotExist())
+                .andExpect(jsonPath("$[0].author").doesNotExist());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_UnknownField_when_SearchTasksWithSortOrFields_then_Status400() throws Exception {
+            mockMvc
+                .perform(get("/tasks/search?sort=priority"))
+                .andExpect(status().isBadRequest());
+            mockMvc
+                .perform(get("/tasks/search?fields=id,priority"))
+                .andExpect(status().isBadRequest());
+            mockMvc
+                .perform(get("/tasks/search?sort=name&after=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_ExistingTasks_when_StreamSearchTasks_then_TasksAreReturned() throws Exception {
+            taskRepository.save(
+                new Task(
+                    new NewTaskDto(
+                        "test name",
+                        "test description",
+                        "1970-01-01T00:00",
+                        genericCategory.getId()
+                    ),
+                    genericCategory,
+                    "OtherUserName"
+                )
+            );
+            List<PersistedTaskDto> taskList = new ArrayList<>();
+            taskList.add(new PersistedTaskDto(taskRepository.save(
+                new Task(
+                    new NewTaskDto(
+                        "test name",
+                        "test description",
+                        "1970-01-01T00:00",
+                        genericCategory.getId()
+                    ),
+                    genericCategory,
+                    genericUsername
+                )
+            )));
+
+            MvcResult result = mockMvc
+                .perform(get("/tasks/search/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+            mockMvc
+                .perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(taskList)));
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_ExistingTasks_when_StreamSearchTasksByAuthorAsUser_then_Status403() throws Exception {
+            mockMvc
+                .perform(get("/tasks/search/stream?author=" + genericUsername))
+                .andExpect(status().isForbidden());
+        }
+    }
+
+    @Nested
+    class StatsTests {
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_ExistingTasks_when_GetStats_then_OwnTasksAreCounted() throws Exception {
+            Category otherCategory = categoryRepository.save(new Category("other name", "other description"));
+            LocalDateTime yesterday = LocalDate.now().minusDays(1).atTime(12, 0);
+            for (Category category : new Category[]{genericCategory, genericCategory, otherCategory}) {
+                taskRepository.save(
+                    new Task(
+                        new NewTaskDto("test title", "test description", yesterday, category.getId()),
+                        category,
+                        genericUsername
+                    )
+                );
+            }
+            taskRepository.save(
+                new Task(
+                    new NewTaskDto("test title", "test description", yesterday, genericCategory.getId()),
+                    genericCategory,
+                    "someone else"
+                )
+            );
+
+            mockMvc
+                .perform(get("/tasks/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.byCategory." + genericCategory.getId()).value(2))
+                .andExpect(jsonPath("$.byCategory." + otherCategory.getId()).value(1))
+                .andExpect(jsonPath("$.byAuthor").doesNotExist())
+                .andExpect(jsonPath("$.byDeadline.overdue").value(3))
+                .andExpect(jsonPath("$.byDeadline.today").value(0));
+        }
+
+        @Test
+        @WithMockUser(roles = "ADMIN", username = "Administrator")
+        void given_ExistingTasks_when_AdminGetsStats_then_TasksAreCountedByAuthor() throws Exception {
+            for (String author : new String[]{genericUsername, genericUsername, "someone else"}) {
+                taskRepository.save(
+                    new Task(
+                        new NewTaskDto("test title", "test description", LocalDateTime.now().plusYears(1), genericCategory.getId()),
+                        genericCategory,
+                        author
+                    )
+                );
+            }
+
+            mockMvc
+                .perform(get("/tasks/stats?name=title"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.byAuthor." + genericUsername).value(2))
+                .andExpect(jsonPath("$.byAuthor['someone else']").value(1))
+                .andExpect(jsonPath("$.byDeadline.overdue").value(0));
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_NonAdmin_when_GetStatsByAuthor_then_Status403() throws Exception {
+            mockMvc
+                .perform(get("/tasks/stats?author=someone"))
+                .andExpect(status().isForbidden());
+        }
+    }
+
+    @Nested
+    class CountTests {
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_TasksWrittenThroughApi_when_GetCount_then_CountersFollowWrites() throws Exception {
+            LocalDate today = LocalDate.now();
+            List<Long> ids = new ArrayList<>();
+            for (LocalDateTime deadline : new LocalDateTime[]{today.atTime(23, 59), today.plusDays(1).atTime(12, 0)}) {
+                String response = mockMvc
+                    .perform(post("/tasks")
+                        .content(taskJson(deadline))
+                        .contentType(MediaType.APPLICATION_JSON)
+                    )
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString();
+                ids.add(objectMapper.readTree(response).get("id").asLong());
+            }
+
+            mockMvc.perform(get("/tasks/count")).andExpect(content().string("2"));
+            mockMvc.perform(get("/tasks/count?dueToday=true")).andExpect(content().string("1"));
+
+            mockMvc
+                .perform(put("/tasks/" + ids.get(1))
+                    .content(taskJson(today.atTime(8, 0)))
+                    .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk());
+            mockMvc.perform(get("/tasks/count?deadlineDay=" + today)).andExpect(content().string("2"));
+
+            mockMvc.perform(delete("/tasks/" + ids.get(0))).andExpect(status().isOk());
+            mockMvc.perform(get("/tasks/count?dueToday=true")).andExpect(content().string("1"));
+            mockMvc.perform(get("/tasks/count?category=" + genericCategory.getId())).andExpect(content().string("1"));
+
+            assertEquals(0, taskCounters.verify());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_TasksWrittenBehindService_when_RebuildCounters_then_CountIsCorrected() throws Exception {
+            taskRepository.save(
+                new Task(
+                    new NewTaskDto("test title", "test description", "1970-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    genericUsername
+                )
+            );
+
+            mockMvc.perform(get("/tasks/count")).andExpect(content().string("0"));
+            assertEquals(1, taskCounters.verify());
+
+            taskCounters.rebuild();
+
+            assertEquals(0, taskCounters.verify());
+            mockMvc.perform(get("/tasks/count")).andExpect(content().string("1"));
+        }
+
+        private String taskJson(LocalDateTime deadline) throws Exception {
+            Map<String, Object> input = new HashMap<>();
+            input.put("name", "test title");
+            input.put("description", "test description");
+            input.put("deadline", deadline.toString());
+            input.put("categoryId", genericCategory.getId());
+            return objectMapper.writeValueAsString(input);
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_NonAdmin_when_GetCountByAuthor_then_Status403() throws Exception {
+            mockMvc
+                .perform(get("/tasks/count?author=someone"))
+                .andExpect(status().isForbidden());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_NameFilter_when_GetCount_then_Status400() throws Exception {
+            mockMvc
+                .perform(get("/tasks/count?name=test"))
+                .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    class ConditionalRequestTests {
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_CurrentETag_when_GetTask_then_Status304() throws Exception {
+            Task task = taskRepository.save(
+                new Task(
+                    new NewTaskDto("test title", "test description", "1970-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    genericUsername
+                )
+            );
+
+            String etag = mockMvc
+                .perform(get("/tasks/" + task.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + task.getVersion() + "\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            mockMvc
+                .perform(get("/tasks/" + task.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+            task.setName("renamed task");
+            taskRepository.save(task);
+
+            mockMvc
+                .perform(get("/tasks/" + task.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("renamed task"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + (task.getVersion() + 1) + "\""));
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_OtherUsersTask_when_GetTaskWithETag_then_Status403() throws Exception {
+            Task task = taskRepository.save(
+                new Task(
+                    new NewTaskDto("test title", "test description", "1970-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    "someone else"
+                )
+            );
+
+            mockMvc
+                .perform(get("/tasks/" + task.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"" + task.getVersion() + "\""))
+                .andExpect(status().isForbidden());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_StaleETag_when_PutTask_then_Status412() throws Exception {
+            Task task = taskRepository.save(
+                new Task(
+                    new NewTaskDto("test title", "test description", "1970-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    genericUsername
+                )
+            );
+            Map<String, Object> input = new HashMap<>();
+            input.put("name", "new title");
+            input.put("description", "new description");
+            input.put("deadline", "1970-01-01T00:00");
+            input.put("categoryId", genericCategory.getId());
+            String inputAsString = objectMapper.writeValueAsString(input);
+            String etag = "\"" + task.getVersion() + "\"";
+
+            mockMvc
+                .perform(put("/tasks/" + task.getId())
+                    .header(HttpHeaders.IF_MATCH, etag)
+                    .content(inputAsString)
+                    .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + (task.getVersion() + 1) + "\""));
+
+            mockMvc
+                .perform(put("/tasks/" + task.getId())
+                    .header(HttpHeaders.IF_MATCH, etag)
+                    .content(inputAsString)
+                    .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+        }
+    }
+
+    @Nested
+    class ChangeFeedTests {
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_Subscriber_when_TasksChange_then_OwnChangesAreStreamed() throws Exception {
+            MvcResult result = mockMvc
+                .perform(get("/tasks/changes"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+            taskRepository.save(
+                new Task(
+                    new NewTaskDto("hidden name", "test description", "1970-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    "OtherUserName"
+                )
+            );
+            Task task = taskRepository.save(
+                new Task(
+                    new NewTaskDto("test name", "test description", "1970-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    genericUsername
+                )
+            );
+            taskRepository.delete(task);
+
+            String events = awaitContent(result, "event:deleted");
+            assertTrue(events.contains("event:created\nid:" + task.getId() + "\ndata:{\"id\":" + task.getId()));
+            assertTrue(events.contains("\"name\":\"test name\""));
+            assertFalse(events.contains("hidden name"));
+        }
+
+        @Test
+        @WithMockUser(roles = "ADMIN", username = "Administrator")
+        void given_AdminSubscriber_when_TaskIsCreated_then_ChangeIsStreamed() throws Exception {
+            MvcResult result = mockMvc
+                .perform(get("/tasks/changes"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+            taskRepository.save(
+                new Task(
+                    new NewTaskDto("test name", "test description", "1970-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    genericUsername
+                )
+            );
+
+            assertTrue(awaitContent(result, "event:created").contains("\"author\":\"" + genericUsername + "\""));
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_IdleSubscriber_when_Heartbeat_then_CommentIsStreamed() throws Exception {
+            MvcResult result = mockMvc
+                .perform(get("/tasks/changes"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+            taskChangeFeed.heartbeat();
+
+            awaitContent(result, ":heartbeat");
+        }
+
+        // Events are written by another thread while the request is still open
+        private String awaitContent(MvcResult result, String expected) throws Exception {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            String content = result.getResponse().getContentAsString();
+            while (!content.contains(expected) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+                content = result.getResponse().getContentAsString();
+            }
+            assertTrue(content.contains(expected), "Expected " + expected + " in " + content);
+            return content;
+        }
+    }
+
+    @Nested
+    class SyncTests {
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_SyncToken_when_Sync_then_OnlyLaterChangesAreReturned() throws Exception {
+            saveTask("other task", "OtherUserName");
+            Task updated = saveTask("updated task", genericUsername);
+            Task deleted = saveTask("deleted task", genericUsername);
+
+            JsonNode fullSync = sync(null);
+            assertEquals(2, fullSync.get("changed").size());
+            assertEquals(0, fullSync.get("deleted").size());
+
+            updated.setName("renamed task");
+            taskRepository.save(updated);
+            taskRepository.delete(deleted);
+            Task created = saveTask("created task", genericUsername);
+            saveTask("other created task", "OtherUserName");
+
+            JsonNode incrementalSync = sync(fullSync.get("token").asText());
+            assertEquals(2, incrementalSync.get("changed").size());
+            assertEquals("renamed task", incrementalSync.get("changed").get(0).get("name").asText());
+            assertEquals(created.getId(), incrementalSync.get("changed").get(1).get("id").asLong());
+            assertEquals(1, incrementalSync.get("deleted").size());
+            assertEquals(deleted.getId(), incrementalSync.get("deleted").get(0).asLong());
+            assertFalse(incrementalSync.get("hasMore").asBoolean());
+
+            JsonNode emptySync = sync(incrementalSync.get("token").asText());
+            assertEquals(0, emptySync.get("changed").size());
+            assertEquals(0, emptySync.get("deleted").size());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_MoreChangesThanLimit_when_Sync_then_ChangesArePaged() throws Exception {
+            for (int i = 0; i < 3; i++) {
+                saveTask("test title " + i, genericUsername);
+            }
+
+            JsonNode firstPage = objectMapper.readTree(mockMvc
+                .perform(get("/tasks/sync?limit=2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+            assertEquals(2, firstPage.get("changed").size());
+            assertTrue(firstPage.get("hasMore").asBoolean());
+
+            JsonNode secondPage = objectMapper.readTree(mockMvc
+                .perform(get("/tasks/sync?limit=2&since=" + firstPage.get("token").asText()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+            assertEquals(1, secondPage.get("changed").size());
+            assertEquals("test title 2", secondPage.get("changed").get(0).get("name").asText());
+            assertFalse(secondPage.get("hasMore").asBoolean());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_TasksSharingModificationSeq_when_Sync_then_AllTasksArePaged() throws Exception {
+            for (int i = 0; i < 3; i++) {
+                saveTask("test title " + i, genericUsername);
+            }
+            // Like the tasks that existed before modification sequence numbers were introduced
+            jdbcTemplate.update("update tasks set modification_seq = 0");
+
+            JsonNode firstPage = objectMapper.readTree(mockMvc
+                .perform(get("/tasks/sync?limit=2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+            assertEquals(2, firstPage.get("changed").size());
+            assertTrue(firstPage.get("hasMore").asBoolean());
+
+            JsonNode secondPage = sync(firstPage.get("token").asText());
+            assertEquals(1, secondPage.get("changed").size());
+            assertEquals("test title 2", secondPage.get("changed").get(0).get("name").asText());
+            assertFalse(secondPage.get("hasMore").asBoolean());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_TasksWrittenThroughApi_when_Sync_then_ChangesAreReturned() throws Exception {
+            Task updated = saveTask("updated task", genericUsername);
+            Task deleted = saveTask("deleted task", genericUsername);
+            JsonNode fullSync = sync(null);
+
+            Map<String, Object> body = new HashMap<>();
+            body.put("name", "renamed task");
+            body.put("deadline", "1970-01-01T00:00");
+            body.put("categoryId", genericCategory.getId());
+            mockMvc
+                .perform(put("/tasks/" + updated.getId())
+                    .content(objectMapper.writeValueAsString(body))
+                    .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + (updated.getVersion() + 1) + "\""));
+            mockMvc
+                .perform(delete("/tasks/" + deleted.getId()))
+                .andExpect(status().isOk());
+
+            JsonNode incrementalSync = sync(fullSync.get("token").asText());
+            assertEquals(1, incrementalSync.get("changed").size());
+            assertEquals("renamed task", incrementalSync.get("changed").get(0).get("name").asText());
+            assertEquals(1, incrementalSync.get("deleted").size());
+            assertEquals(deleted.getId(), incrementalSync.get("deleted").get(0).asLong());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_TokenOlderThanPrunedTombstones_when_Sync_then_FullSyncIsReturned() throws Exception {
+            Task kept = saveTask("kept task", genericUsername);
+            Task deleted = saveTask("deleted task", genericUsername);
+            JsonNode fullSync = sync(null);
+            assertFalse(fullSync.get("reset").asBoolean());
+
+            mockMvc
+                .perform(delete("/tasks/" + deleted.getId()))
+                .andExpect(status().isOk());
+            assertTrue(taskTombstones.prune(LocalDateTime.now().plusDays(1)) > 0);
+
+            JsonNode resetSync = sync(fullSync.get("token").asText());
+            assertTrue(resetSync.get("reset").asBoolean());
+            assertEquals(1, resetSync.get("changed").size());
+            assertEquals(kept.getId(), resetSync.get("changed").get(0).get("id").asLong());
+            assertEquals(0, resetSync.get("deleted").size());
+
+            JsonNode nextSync = sync(resetSync.get("token").asText());
+            assertFalse(nextSync.get("reset").asBoolean());
+        }
+
+        @Test
+        @WithMockUser(roles = "USER", username = genericUsername)
+        void given_InvalidToken_when_Sync_then_Status400() throws Exception {
+            mockMvc
+                .perform(get("/tasks/sync?since=not-a-token"))
+                .andExpect(status().isBadRequest());
+        }
+
+        private Task saveTask(String name, String author) {
+            return taskRepository.save(
+                new Task(
+                    new NewTaskDto(name, "test description", "1970-01-01T00:00", genericCategory.getId()),
+                    genericCategory,
+                    author
+                )
+            );
+        }
+
+        private JsonNode sync(String since) throws Exception {
+            String response = mockMvc
+                .perform(since == null ? get("/tasks/sync") : get("/tasks/sync?since=" + since))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+            return objectMapper.readTree(response);
+        }
     }
 }
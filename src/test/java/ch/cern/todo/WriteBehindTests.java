@@ -0,0 +1,176 @@
+package ch.cern.todo;
+
+import ch.cern.todo.model.Category;
+import ch.cern.todo.model.Task;
+import ch.cern.todo.repository.CategoryRepository;
+import ch.cern.todo.repository.TaskCounters;
+import ch.cern.todo.repository.TaskRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {
+    "todo.write-behind.enabled=true",
+    "todo.write-behind.log=${java.io.tmpdir}/todo-write-behind-tests.log",
+    "todo.write-behind.dead-letter-log=${java.io.tmpdir}/todo-write-behind-tests.dead.log"
+})
+public class WriteBehindTests extends TodoApplicationTests {
+    private static final String username = "WriteBehindUser";
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private TaskRepository taskRepository;
+    @Autowired
+    private TaskCounters taskCounters;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Category category;
+
+    @BeforeEach
+    public void setup() {
+        category = categoryRepository.save(new Category("write-behind", null));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        taskRepository.deleteAll();
+        categoryRepository.deleteAll();
+        taskCounters.rebuild();
+    }
+
+    @Test
+    @WithMockUser(roles = "USER", username = username)
+    void given_TaskData_when_PostTask_then_TaskIsAcceptedAndWrittenLater() throws Exception {
+        String response = mockMvc
+            .perform(post("/tasks")
+                .content(taskJson("test name"))
+                .contentType(MediaType.APPLICATION_JSON)
+            )
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.name").value("test name"))
+            .andExpect(jsonPath("$.author").value(username))
+            .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(response).get("id").asLong();
+
+        // Readable by ID whether or not it has been written yet
+        mockMvc
+            .perform(get("/tasks/" + id))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("test name"));
+
+        Task task = await(() -> taskRepository.findById(id));
+        assertEquals("test name", task.getName());
+        assertEquals(username, task.getAuthor());
+        assertEquals(category.getId(), task.getCategory().getId());
+        assertEquals(1, taskCounters.count(username, category.getId(), LocalDate.of(1970, 1, 1)));
+        mockMvc
+            .perform(get("/tasks/" + id))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER", username = username)
+    void given_PendingTask_when_PutTask_then_LatestWriteWins() throws Exception {
+        String response = mockMvc
+            .perform(post("/tasks")
+                .content(taskJson("first name"))
+                .contentType(MediaType.APPLICATION_JSON)
+            )
+            .andExpect(status().isAccepted())
+            .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(response).get("id").asLong();
+
+        mockMvc
+            .perform(put("/tasks/" + id)
+                .content(taskJson("second name"))
+                .contentType(MediaType.APPLICATION_JSON)
+            )
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.name").value("second name"));
+        mockMvc
+            .perform(get("/tasks/" + id))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("second name"));
+
+        await(() -> taskRepository.findById(id).filter(task -> task.getName().equals("second name")));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER", username = username)
+    void given_PendingTask_when_DeleteTask_then_TaskIsDeletedAfterItIsWritten() throws Exception {
+        String response = mockMvc
+            .perform(post("/tasks")
+                .content(taskJson("test name"))
+                .contentType(MediaType.APPLICATION_JSON)
+            )
+            .andExpect(status().isAccepted())
+            .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(response).get("id").asLong();
+
+        mockMvc
+            .perform(delete("/tasks/" + id))
+            .andExpect(status().isOk());
+
+        assertTrue(taskRepository.findById(id).isEmpty());
+        mockMvc
+            .perform(get("/tasks/" + id))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER", username = username)
+    void given_UnknownCategory_when_PostTask_then_Status404() throws Exception {
+        Map<String, Object> body = new HashMap<>();
+        body.put("name", "test name");
+        body.put("deadline", "1970-01-01T00:00");
+        body.put("categoryId", category.getId() + 1000);
+
+        mockMvc
+            .perform(post("/tasks")
+                .content(objectMapper.writeValueAsString(body))
+                .contentType(MediaType.APPLICATION_JSON)
+            )
+            .andExpect(status().isNotFound());
+    }
+
+    private String taskJson(String name) throws Exception {
+        Map<String, Object> body = new HashMap<>();
+        body.put("name", name);
+        body.put("deadline", "1970-01-01T00:00");
+        body.put("categoryId", category.getId());
+        return objectMapper.writeValueAsString(body);
+    }
+
+    // Writes are applied by a background thread
+    private static <T> T await(Supplier<Optional<T>> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Optional<T> result = condition.get();
+        while (result.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            result = condition.get();
+        }
+        assertTrue(result.isPresent(), "Write was not applied in time");
+        return result.get();
+    }
+}
@@ -0,0 +1,169 @@
+package ch.cern.todo.benchmark;
+
+import ch.cern.todo.TodoApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Run with ./gradlew benchmark
+// Serves requests on virtual threads so that the connection pool, not Tomcat, is the bottleneck,
+// and reports how requests queue for connections as the pool gets smaller than the number of clients.
+@Tag("benchmark")
+class ConnectionPoolLoadBenchmark {
+    private static final int CLIENTS = 200;
+    private static final int REQUESTS_PER_CLIENT = 25;
+    private static final int[] POOL_SIZES = {2, 10, 50};
+    private static final Duration CONNECTION_TIMEOUT = Duration.ofSeconds(2);
+
+    @Test
+    void comparePoolSizes() throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (int poolSize : POOL_SIZES) {
+            results.add(run(poolSize));
+        }
+
+        System.out.printf(
+            "%n%6s %12s %14s %14s %14s %10s %10s%n",
+            "pool", "requests/s", "acquire mean", "acquire max", "peak pending", "timeouts", "errors"
+        );
+        results.forEach(Result::print);
+    }
+
+    private Result run(int poolSize) throws Exception {
+        try (ServletWebServerApplicationContext context = (ServletWebServerApplicationContext) new SpringApplicationBuilder(TodoApplication.class)
+            .properties(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:pool-" + poolSize,
+                "spring.threads.virtual.enabled=true",
+                "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "spring.datasource.hikari.minimum-idle=" + poolSize,
+                "spring.datasource.hikari.connection-timeout=" + CONNECTION_TIMEOUT.toMillis()
+            )
+            .run()) {
+            String baseUrl = "http://localhost:" + context.getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+            long categoryId = createCategory(client, baseUrl);
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+
+            AtomicInteger errors = new AtomicInteger();
+            AtomicInteger peakPending = new AtomicInteger();
+            long start = System.nanoTime();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                Future<?> sampler = clients.submit(() -> {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        int pending = (int) registry.get("hikaricp.connections.pending").gauge().value();
+                        peakPending.accumulateAndGet(pending, Math::max);
+                        Thread.sleep(5);
+                    }
+                    return null;
+                });
+
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < CLIENTS; i++) {
+                    futures.add(clients.submit(() -> {
+                        for (int j = 0; j < REQUESTS_PER_CLIENT; j++) {
+                            HttpRequest request = j % 5 == 0
+                                ? post(baseUrl + "/tasks", "user", "u1pass",
+                                    "{\"name\":\"load\",\"deadline\":\"2000-01-01T00:00\",\"categoryId\":" + categoryId + "}")
+                                : get(baseUrl + "/tasks/search?limit=20", "user", "u1pass");
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            // Requests that could not get a connection in time fail with 500
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                sampler.cancel(true);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            Timer acquire = registry.get("hikaricp.connections.acquire").timer();
+            double timeouts = registry.get("hikaricp.connections.timeout").counter().count();
+            return new Result(
+                poolSize,
+                CLIENTS * REQUESTS_PER_CLIENT / (elapsed / 1e9),
+                acquire.mean(TimeUnit.MILLISECONDS),
+                acquire.max(TimeUnit.MILLISECONDS),
+                peakPending.get(),
+                (long) timeouts,
+                errors.get()
+            );
+        }
+    }
+
+    private static long createCategory(HttpClient client, String baseUrl) throws Exception {
+        HttpResponse<String> response = client.send(
+            post(baseUrl + "/categories", "admin", "admin", "{\"name\":\"load test\"}"),
+            HttpResponse.BodyHandlers.ofString()
+        );
+        assertEquals(201, response.statusCode());
+        return Long.parseLong(response.body().replaceAll(".*\"id\":(\\d+).*", "$1"));
+    }
+
+    private static HttpRequest get(String url, String username, String password) {
+        return HttpRequest.newBuilder(URI.create(url))
+            .header("Authorization", basic(username, password))
+            .GET()
+            .build();
+    }
+
+    private static HttpRequest post(String url, String username, String password, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+            .header("Authorization", basic(username, password))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .build();
+    }
+
+    private static String basic(String username, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record Result(
+        int poolSize,
+        double throughput,
+        double acquireMeanMillis,
+        double acquireMaxMillis,
+        int peakPending,
+        long timeouts,
+        int errors
+    ) {
+        void print() {
+            System.out.printf(
+                "%6d %12.0f %11.1f ms %11.1f ms %14d %10d %10d%n",
+                poolSize,
+                throughput,
+                acquireMeanMillis,
+                acquireMaxMillis,
+                peakPending,
+                timeouts,
+                errors
+            );
+        }
+    }
+}
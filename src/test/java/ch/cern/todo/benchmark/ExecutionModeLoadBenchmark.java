@@ -0,0 +1,130 @@
+package ch.cern.todo.benchmark;
+
+import ch.cern.todo.TodoApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Run with ./gradlew benchmark
+// Starts the application once per execution mode and hits it with more concurrent clients
+// than there are Tomcat threads, to compare throughput and latency under a bursty load.
+@Tag("benchmark")
+class ExecutionModeLoadBenchmark {
+    private static final int TOMCAT_THREADS = 20;
+    private static final int CLIENTS = 400;
+    private static final int REQUESTS_PER_CLIENT = 25;
+
+    @Test
+    void comparePlatformAndVirtualThreads() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("%n%-10s %12s %10s %10s %10s%n", "mode", "requests/s", "p50 (ms)", "p99 (ms)", "max (ms)");
+        platform.print("platform");
+        virtual.print("virtual");
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ServletWebServerApplicationContext context = (ServletWebServerApplicationContext) new SpringApplicationBuilder(TodoApplication.class)
+            .properties(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:load-" + (virtualThreads ? "virtual" : "platform"),
+                "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                "spring.threads.virtual.enabled=" + virtualThreads
+            )
+            .run()) {
+            String baseUrl = "http://localhost:" + context.getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+            long categoryId = createCategory(client, baseUrl);
+
+            List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+            long start = System.nanoTime();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < CLIENTS; i++) {
+                    futures.add(clients.submit(() -> {
+                        for (int j = 0; j < REQUESTS_PER_CLIENT; j++) {
+                            HttpRequest request = j % 5 == 0
+                                ? post(baseUrl + "/tasks", "user", "u1pass",
+                                    "{\"name\":\"load\",\"deadline\":\"2000-01-01T00:00\",\"categoryId\":" + categoryId + "}")
+                                : get(baseUrl + "/tasks/search?limit=20", "user", "u1pass");
+                            long requestStart = System.nanoTime();
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            latencies.add(System.nanoTime() - requestStart);
+                            if (response.statusCode() >= 400) {
+                                throw new IllegalStateException("Request failed with status " + response.statusCode());
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            assertEquals(CLIENTS * REQUESTS_PER_CLIENT, latencies.size());
+            return new Result(latencies, elapsed);
+        }
+    }
+
+    private static long createCategory(HttpClient client, String baseUrl) throws Exception {
+        HttpResponse<String> response = client.send(
+            post(baseUrl + "/categories", "admin", "admin", "{\"name\":\"load test\"}"),
+            HttpResponse.BodyHandlers.ofString()
+        );
+        assertEquals(201, response.statusCode());
+        return Long.parseLong(response.body().replaceAll(".*\"id\":(\\d+).*", "$1"));
+    }
+
+    private static HttpRequest get(String url, String username, String password) {
+        return HttpRequest.newBuilder(URI.create(url))
+            .header("Authorization", basic(username, password))
+            .GET()
+            .build();
+    }
+
+    private static HttpRequest post(String url, String username, String password, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+            .header("Authorization", basic(username, password))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .build();
+    }
+
+    private static String basic(String username, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record Result(List<Long> latencies, long elapsedNanos) {
+        void print(String mode) {
+            List<Long> sorted = latencies.stream().sorted().toList();
+            System.out.printf(
+                "%-10s %12.0f %10.1f %10.1f %10.1f%n",
+                mode,
+                sorted.size() / (elapsedNanos / 1e9),
+                sorted.get(sorted.size() / 2) / 1e6,
+                sorted.get((int) (sorted.size() * 0.99)) / 1e6,
+                sorted.getLast() / 1e6
+            );
+        }
+    }
+}
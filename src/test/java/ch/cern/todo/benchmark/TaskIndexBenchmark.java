@@ -0,0 +1,140 @@
+package ch.cern.todo.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Run with ./gradlew benchmark
+// Compares the latency of the search access paths on 1M tasks before and after
+// the V2 index migration. Runs on plain JDBC to keep Hibernate out of the numbers.
+@Tag("benchmark")
+class TaskIndexBenchmark {
+    private static final String URL = "jdbc:h2:mem:task-index-benchmark;DB_CLOSE_DELAY=-1";
+    private static final int ROWS = 1_000_000;
+    private static final int AUTHORS = 1_000;
+    private static final int CATEGORIES = 100;
+    private static final int HOURS_OF_DEADLINES = 24 * 365;
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 20;
+
+    private static final Map<String, String> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("author", "select * from tasks where author = ?");
+        QUERIES.put("author + deadline", "select * from tasks where author = ? and deadline = ?");
+        QUERIES.put("author + category", "select * from tasks where author = ? and category_id = ?");
+        QUERIES.put("category", "select * from tasks where category_id = ?");
+    }
+
+    private final Random random = new Random(42);
+
+    @Test
+    void compareSearchLatencyWithAndWithoutIndexes() throws SQLException {
+        migrate("1");
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "")) {
+            seed(connection);
+            Map<String, Double> without = measure(connection);
+
+            // Only the indexes of V2, later migrations add other indexes and columns
+            migrate("2");
+            analyze(connection);
+            Map<String, Double> with = measure(connection);
+
+            System.out.printf("%n%-20s %15s %15s%n", "query (" + ROWS + " rows)", "no index (ms)", "indexed (ms)");
+            for (String query : QUERIES.keySet()) {
+                System.out.printf("%-20s %15.3f %15.3f%n", query, without.get(query), with.get(query));
+            }
+
+            assertTrue(plan(connection, "where author = 'user1' and deadline = timestamp '2024-01-01 01:00:00'")
+                .contains("TASKS_AUTHOR_DEADLINE_IDX"));
+            assertTrue(plan(connection, "where author = 'user1' and category_id = 2")
+                .contains("TASKS_AUTHOR_CATEGORY_IDX"));
+        }
+    }
+
+    private static void migrate(String target) {
+        Flyway.configure()
+            .dataSource(URL, "sa", "")
+            .target(target)
+            .load()
+            .migrate();
+    }
+
+    private static void seed(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(
+                "insert into task_categories (category_id, category_name) "
+                    + "select x, 'category ' || x from system_range(1, " + CATEGORIES + ")"
+            );
+            statement.execute(
+                "insert into tasks (task_id, task_name, task_description, deadline, category_id, author) "
+                    + "select x, 'task ' || x, 'description ' || x, "
+                    + "dateadd('HOUR', mod(x, " + HOURS_OF_DEADLINES + "), timestamp '2024-01-01 00:00:00'), "
+                    + "1 + mod(x, " + CATEGORIES + "), 'user' || mod(x, " + AUTHORS + ") "
+                    + "from system_range(1, " + ROWS + ")"
+            );
+        }
+        analyze(connection);
+    }
+
+    private static void analyze(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("analyze");
+        }
+    }
+
+    private Map<String, Double> measure(Connection connection) throws SQLException {
+        Map<String, Double> averageMillis = new LinkedHashMap<>();
+        for (Map.Entry<String, String> query : QUERIES.entrySet()) {
+            try (PreparedStatement statement = connection.prepareStatement(query.getValue())) {
+                for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                    run(statement, query.getValue());
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    run(statement, query.getValue());
+                }
+                averageMillis.put(query.getKey(), (System.nanoTime() - start) / 1e6 / ITERATIONS);
+            }
+        }
+        return averageMillis;
+    }
+
+    // Binds random values matching the seeded distribution to whatever parameters the query has
+    private void run(PreparedStatement statement, String sql) throws SQLException {
+        int index = 1;
+        if (sql.contains("author = ?")) {
+            statement.setString(index++, "user" + random.nextInt(AUTHORS));
+        }
+        if (sql.contains("deadline = ?")) {
+            statement.setObject(index++, LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(random.nextInt(HOURS_OF_DEADLINES)));
+        }
+        if (sql.contains("category_id = ?")) {
+            statement.setLong(index++, 1 + random.nextInt(CATEGORIES));
+        }
+
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                resultSet.getLong("task_id");
+            }
+        }
+    }
+
+    private static String plan(Connection connection, String condition) throws SQLException {
+        try (
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery("explain select * from tasks " + condition)
+        ) {
+            resultSet.next();
+            return resultSet.getString(1).toUpperCase();
+        }
+    }
+}